@@ -3,19 +3,29 @@ package com.example.servers.admin;
 import com.example.servers.BaseResponse;
 import com.example.servers.auth.User;
 import com.example.servers.auth.UserRepository;
+import com.example.servers.cache.CacheVersions;
+import com.example.servers.detail.GoodsDetailCache;
 import com.example.servers.goods.Goods;
+import com.example.servers.goods.GoodsChangedEvent;
 import com.example.servers.goods.GoodsRepository;
 import com.example.servers.news.Article;
 import com.example.servers.news.ArticleRepository;
-import com.example.servers.order.Order;
-import com.example.servers.order.OrderRepository;
+import com.example.servers.order.OrderRollups;
+import com.example.servers.track.TrackPipeline;
+import com.example.servers.track.TrackRollups;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
@@ -32,17 +42,41 @@ public class AdminController {
 
     private final UserRepository userRepository;
     private final GoodsRepository goodsRepository;
-    private final OrderRepository orderRepository;
     private final ArticleRepository articleRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheVersions cacheVersions;
+    private final GoodsDetailCache goodsDetailCache;
+    private final TrackPipeline trackPipeline;
+    private final TrackRollups trackRollups;
+    private final SalesAnalyticsStore salesAnalyticsStore;
+    private final DashboardMetrics dashboardMetrics;
+    private final DashboardStream dashboardStream;
+    private final OrderRollups orderRollups;
 
     public AdminController(UserRepository userRepository,
                            GoodsRepository goodsRepository,
-                           OrderRepository orderRepository,
-                           ArticleRepository articleRepository) {
+                           ArticleRepository articleRepository,
+                           ApplicationEventPublisher eventPublisher,
+                           CacheVersions cacheVersions,
+                           GoodsDetailCache goodsDetailCache,
+                           TrackPipeline trackPipeline,
+                           TrackRollups trackRollups,
+                           SalesAnalyticsStore salesAnalyticsStore,
+                           DashboardMetrics dashboardMetrics,
+                           DashboardStream dashboardStream,
+                           OrderRollups orderRollups) {
         this.userRepository = userRepository;
         this.goodsRepository = goodsRepository;
-        this.orderRepository = orderRepository;
         this.articleRepository = articleRepository;
+        this.eventPublisher = eventPublisher;
+        this.cacheVersions = cacheVersions;
+        this.goodsDetailCache = goodsDetailCache;
+        this.trackPipeline = trackPipeline;
+        this.trackRollups = trackRollups;
+        this.salesAnalyticsStore = salesAnalyticsStore;
+        this.dashboardMetrics = dashboardMetrics;
+        this.dashboardStream = dashboardStream;
+        this.orderRollups = orderRollups;
     }
 
     // ─── 鉴权 ────────────────────────────────────────────────────────
@@ -66,36 +100,38 @@ public class AdminController {
 
     // ─── 仪表盘统计 ───────────────────────────────────────────────────
 
+    /** 读取后台定时计算的快照，force=true 可强制刷新（有最小间隔限制） */
     @PostMapping("/dashboard")
     public BaseResponse<Map<String, Object>> dashboard(@RequestBody Map<String, Object> body) {
         if (!checkToken(body)) return unauthorized();
-        Map<String, Object> data = new HashMap<>();
-        data.put("totalUsers", userRepository.count());
-        data.put("activeUsers", userRepository.countByStatus("ACTIVE"));
-        data.put("disabledUsers", userRepository.countByStatus("DISABLED"));
-        data.put("totalGoods", goodsRepository.count());
-        data.put("activeGoods", goodsRepository.countByStatus("ACTIVE"));
-        data.put("inactiveGoods", goodsRepository.countByStatus("INACTIVE"));
-        data.put("totalOrders", orderRepository.count());
-        data.put("totalArticles", articleRepository.count());
-        // 各订单状态数量
-        Map<String, Long> orderStats = new LinkedHashMap<>();
-        String[] statuses = {"PENDING_PAYMENT", "PENDING_SHIPMENT", "PENDING_RECEIPT", "COMPLETED", "CANCELLED"};
-        for (String s : statuses) {
-            orderStats.put(s, orderRepository.countByStatus(s));
+        boolean force = Boolean.parseBoolean(getStr(body, "force", "false"));
+        DashboardMetrics.Snapshot snapshot = dashboardMetrics.current(force);
+        Map<String, Object> data = new HashMap<>(snapshot.data());
+        data.put("snapshotAt", snapshot.builtAt().toEpochMilli());
+        data.put("snapshotAgeMs", Duration.between(snapshot.builtAt(), Instant.now()).toMillis());
+        return BaseResponse.success(data);
+    }
+
+    /**
+     * 仪表盘实时推送（SSE）：先推一份 snapshot，之后按间隔推送 delta。
+     * EventSource 无法自定义请求体，token 通过查询参数传入。
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(@RequestParam(defaultValue = "") String token) {
+        if (!ADMIN_TOKEN.equals(token)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        data.put("orderStats", orderStats);
-        // 分类销量
-        List<Map<String, Object>> catSales = new ArrayList<>();
-        List<Object[]> rows = goodsRepository.sumSalesByCategory();
-        for (Object[] row : rows) {
-            Map<String, Object> m = new HashMap<>();
-            m.put("category", row[0]);
-            m.put("sales", row[1]);
-            catSales.add(m);
+        SseEmitter emitter = dashboardStream.subscribe();
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         }
-        data.put("categorySales", catSales);
-        return BaseResponse.success(data);
+        return ResponseEntity.ok(emitter);
+    }
+
+    @PostMapping("/stream/metrics")
+    public BaseResponse<Map<String, Object>> streamMetrics(@RequestBody Map<String, Object> body) {
+        if (!checkToken(body)) return unauthorized();
+        return BaseResponse.success(dashboardStream.metrics());
     }
 
     // ─── 用户管理 ─────────────────────────────────────────────────────
@@ -166,6 +202,7 @@ public class AdminController {
         g.setStatus("ACTIVE");
         g.setCreatedAt(Instant.now());
         goodsRepository.save(g);
+        eventPublisher.publishEvent(new GoodsChangedEvent(g));
         return BaseResponse.success(goodsToMap(g));
     }
 
@@ -180,6 +217,7 @@ public class AdminController {
         Goods g = opt.get();
         fillGoods(g, body);
         goodsRepository.save(g);
+        eventPublisher.publishEvent(new GoodsChangedEvent(g));
         return BaseResponse.success(goodsToMap(g));
     }
 
@@ -194,6 +232,7 @@ public class AdminController {
         Goods g = opt.get();
         g.setStatus("ACTIVE".equals(g.getStatus()) ? "INACTIVE" : "ACTIVE");
         goodsRepository.save(g);
+        eventPublisher.publishEvent(new GoodsChangedEvent(g));
         return BaseResponse.success("状态已更新为：" + g.getStatus());
     }
 
@@ -263,19 +302,96 @@ public class AdminController {
             catSales.add(m);
         }
         data.put("categorySales", catSales);
-        // 订单总金额 + 各状态数量
-        List<Order> allOrders = orderRepository.findAll();
-        double totalRevenue = 0.0;
-        Map<String, Long> statusCount = new LinkedHashMap<>();
-        for (Order o : allOrders) {
-            totalRevenue += o.getTotalAmount() != null ? o.getTotalAmount().doubleValue() : 0;
-            statusCount.merge(o.getStatus(), 1L, Long::sum);
-        }
-        data.put("totalRevenue", String.format("%.2f", totalRevenue));
-        data.put("orderStatusCount", statusCount);
+        // 订单总金额 + 各状态数量（各实例共用的聚合行）
+        SalesAnalyticsStore.Totals totals = salesAnalyticsStore.current();
+        data.put("totalRevenue", String.format("%.2f", totals.revenue()));
+        data.put("orderStatusCount", totals.orderedStatusCounts());
+        return BaseResponse.success(data);
+    }
+
+    /**
+     * 订单时间序列：from / to 为毫秒时间戳，默认最近 30 天；granularity 为 HOUR / DAY（默认 DAY），
+     * categoryCode 为空表示全部订单。只读 order_rollup 汇总表。
+     */
+    @PostMapping("/analytics/timeseries")
+    public BaseResponse<Map<String, Object>> salesTimeseries(@RequestBody Map<String, Object> body) {
+        if (!checkToken(body)) return unauthorized();
+        Long toMs = getLong(body, "to");
+        Long fromMs = getLong(body, "from");
+        Instant to = toMs != null ? Instant.ofEpochMilli(toMs) : Instant.now();
+        Instant from = fromMs != null ? Instant.ofEpochMilli(fromMs) : to.minus(Duration.ofDays(30));
+        if (!from.isBefore(to)) return new BaseResponse<>("400", "from 必须早于 to", null);
+        String granularity = getStr(body, "granularity", OrderRollups.DAY);
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("granularity", OrderRollups.HOUR.equals(granularity) ? OrderRollups.HOUR : OrderRollups.DAY);
+        data.put("series", orderRollups.series(from, to, granularity, getStr(body, "categoryCode", "")));
+        data.put("backfillRunning", orderRollups.isBackfillRunning());
         return BaseResponse.success(data);
     }
 
+    /** 按 t_order 全量重建订单汇总（后台执行） */
+    @PostMapping("/analytics/rebuildRollups")
+    public BaseResponse<String> rebuildOrderRollups(@RequestBody Map<String, Object> body) {
+        if (!checkToken(body)) return unauthorized();
+        if (!orderRollups.requestBackfill()) return new BaseResponse<>("400", "汇总回填正在进行中", null);
+        return BaseResponse.success("已开始回填");
+    }
+
+    // ─── 缓存管理 ─────────────────────────────────────────────────────
+
+    /** 直接改库后手动刷新内存缓存（如 category），所有实例在下次轮询时重建 */
+    @PostMapping("/cache/refresh")
+    public BaseResponse<String> cacheRefresh(@RequestBody Map<String, Object> body) {
+        if (!checkToken(body)) return unauthorized();
+        String name = getStr(body, "name", "");
+        if (name.isEmpty()) return new BaseResponse<>("400", "缺少name", null);
+        cacheVersions.markChanged(name);
+        cacheVersions.sync();
+        return BaseResponse.success("已刷新：" + name);
+    }
+
+    @PostMapping("/cache/stats")
+    public BaseResponse<Map<String, Object>> cacheStats(@RequestBody Map<String, Object> body) {
+        if (!checkToken(body)) return unauthorized();
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("goodsDetail", goodsDetailCache.stats());
+        return BaseResponse.success(data);
+    }
+
+    // ─── 埋点管道 ─────────────────────────────────────────────────────
+
+    @PostMapping("/track/metrics")
+    public BaseResponse<Map<String, Object>> trackMetrics(@RequestBody Map<String, Object> body) {
+        if (!checkToken(body)) return unauthorized();
+        return BaseResponse.success(trackPipeline.metrics());
+    }
+
+    /** 埋点时间序列：from / to 为毫秒时间戳，默认最近 24 小时；granularity 为 MINUTE / HOUR / DAY */
+    @PostMapping("/track/rollup")
+    public BaseResponse<List<Map<String, Object>>> trackRollup(@RequestBody Map<String, Object> body) {
+        if (!checkToken(body)) return unauthorized();
+        Long toMs = getLong(body, "to");
+        Long fromMs = getLong(body, "from");
+        Instant to = toMs != null ? Instant.ofEpochMilli(toMs) : Instant.now();
+        Instant from = fromMs != null ? Instant.ofEpochMilli(fromMs) : to.minus(Duration.ofDays(1));
+        String eventType = getStr(body, "eventType", "");
+        String granularity = getStr(body, "granularity", TrackRollups.HOUR);
+        return BaseResponse.success(trackRollups.series(from, to, getLong(body, "goodsId"),
+                eventType.isEmpty() ? null : eventType, granularity));
+    }
+
+    @PostMapping("/track/topGoods")
+    public BaseResponse<List<Map<String, Object>>> trackTopGoods(@RequestBody Map<String, Object> body) {
+        if (!checkToken(body)) return unauthorized();
+        Long toMs = getLong(body, "to");
+        Long fromMs = getLong(body, "from");
+        Instant to = toMs != null ? Instant.ofEpochMilli(toMs) : Instant.now();
+        Instant from = fromMs != null ? Instant.ofEpochMilli(fromMs) : to.minus(Duration.ofDays(1));
+        String eventType = getStr(body, "eventType", "click");
+        int limit = Math.min(Math.max(getInt(body, "limit", 20), 1), 100);
+        return BaseResponse.success(trackRollups.topGoods(eventType, from, to, limit));
+    }
+
     // ─── 辅助方法 ─────────────────────────────────────────────────────
 
     private <T> BaseResponse<T> unauthorized() {
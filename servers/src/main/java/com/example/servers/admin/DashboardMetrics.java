@@ -0,0 +1,125 @@
+package com.example.servers.admin;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.example.servers.goods.GoodsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 管理端仪表盘的指标快照。
+ * 后台按固定间隔用一条 UNION ALL 分组计数和一条分类销量聚合重新计算，
+ * 请求只读取最新的不可变快照；强制刷新有最小间隔限制。
+ */
+@Component
+public class DashboardMetrics {
+
+    private static final String[] ORDER_STATUSES =
+            {"PENDING_PAYMENT", "PENDING_SHIPMENT", "PENDING_RECEIPT", "COMPLETED", "CANCELLED"};
+
+    private static final String COUNT_SQL =
+            "SELECT 'users', status, COUNT(*) FROM users GROUP BY status " +
+            "UNION ALL SELECT 'goods', status, COUNT(*) FROM goods GROUP BY status " +
+            "UNION ALL SELECT 'orders', status, COUNT(*) FROM t_order GROUP BY status " +
+            "UNION ALL SELECT 'articles', NULL, COUNT(*) FROM t_article";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GoodsRepository goodsRepository;
+    private final long minForceIntervalNanos;
+
+    private volatile Snapshot snapshot;
+    private long lastRefreshNanos;
+
+    public DashboardMetrics(JdbcTemplate jdbcTemplate,
+                            GoodsRepository goodsRepository,
+                            @Value("${admin.dashboard.min-force-interval-ms:10000}") long minForceIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.goodsRepository = goodsRepository;
+        this.minForceIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minForceIntervalMs);
+    }
+
+    /** force 为 true 且距上次刷新超过最小间隔时先同步刷新 */
+    public Snapshot current(boolean force) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return refreshIfOlderThan(0);
+        }
+        if (force) {
+            return refreshIfOlderThan(minForceIntervalNanos);
+        }
+        return current;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${admin.dashboard.refresh-interval-ms:30000}",
+            fixedDelayString = "${admin.dashboard.refresh-interval-ms:30000}")
+    public void refresh() {
+        refreshIfOlderThan(0);
+    }
+
+    // 并发的刷新请求排队后直接复用刚算出的快照
+    private synchronized Snapshot refreshIfOlderThan(long minAgeNanos) {
+        if (snapshot != null && System.nanoTime() - lastRefreshNanos < minAgeNanos) {
+            return snapshot;
+        }
+        Map<String, Map<String, Long>> counts = new HashMap<>();
+        RowCallbackHandler collect = rs -> counts.computeIfAbsent(rs.getString(1), k -> new HashMap<>())
+                .put(rs.getString(2), rs.getLong(3));
+        jdbcTemplate.query(COUNT_SQL, collect);
+
+        Map<String, Object> data = new HashMap<>();
+        Map<String, Long> users = counts.getOrDefault("users", Map.of());
+        Map<String, Long> goods = counts.getOrDefault("goods", Map.of());
+        Map<String, Long> orders = counts.getOrDefault("orders", Map.of());
+        data.put("totalUsers", total(users));
+        data.put("activeUsers", users.getOrDefault("ACTIVE", 0L));
+        data.put("disabledUsers", users.getOrDefault("DISABLED", 0L));
+        data.put("totalGoods", total(goods));
+        data.put("activeGoods", goods.getOrDefault("ACTIVE", 0L));
+        data.put("inactiveGoods", goods.getOrDefault("INACTIVE", 0L));
+        data.put("totalOrders", total(orders));
+        data.put("totalArticles", total(counts.getOrDefault("articles", Map.of())));
+        // 各订单状态数量
+        Map<String, Long> orderStats = new LinkedHashMap<>();
+        for (String s : ORDER_STATUSES) {
+            orderStats.put(s, orders.getOrDefault(s, 0L));
+        }
+        data.put("orderStats", orderStats);
+        // 分类销量
+        List<Map<String, Object>> catSales = new ArrayList<>();
+        for (Object[] row : goodsRepository.sumSalesByCategory()) {
+            Map<String, Object> m = new HashMap<>();
+            m.put("category", row[0]);
+            m.put("sales", row[1]);
+            catSales.add(m);
+        }
+        data.put("categorySales", catSales);
+
+        snapshot = new Snapshot(Collections.unmodifiableMap(data), Instant.now());
+        lastRefreshNanos = System.nanoTime();
+        return snapshot;
+    }
+
+    private static long total(Map<String, Long> counts) {
+        long total = 0;
+        for (Long c : counts.values()) {
+            total += c;
+        }
+        return total;
+    }
+
+    public record Snapshot(Map<String, Object> data, Instant builtAt) {
+    }
+}
@@ -0,0 +1,424 @@
+package com.example.servers.admin;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.servers.admin.SalesAnalyticsStore.Totals;
+import com.example.servers.goods.GoodsRepository;
+import com.example.servers.goods.GoodsStatsChangedEvent;
+import com.example.servers.order.OrderStatusChangedEvent;
+import com.example.servers.track.TrackBatchWrittenEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 管理端仪表盘的 SSE 推送。
+ * 本实例的订单状态流转（OrderStatusChangedEvent）、商品销量变化（GoodsStatsChangedEvent）和埋点批次
+ * （TrackBatchWrittenEvent）提交后即生成一帧推送，不再逐秒查库：订单事件按主键读取 SalesAnalyticsStore
+ * 的共用聚合行，与上一帧比较得出增量；销量事件按分类累加内存中的分类销量，排行变化时推送。
+ * 其他实例产生的变化由定时校准读取同一聚合行补上，分类销量按较长间隔重新聚合 goods 表。
+ * 没有订阅者时事件直接忽略，也不校准。
+ * 每个订阅者有自己的有界缓冲，发送跟不上时把新增量合并进队尾；
+ * 单次发送超过 send-timeout 的订阅者被移除，发送线程池按需扩容，卡住的连接不会拖住其他订阅者。
+ */
+@Component
+public class DashboardStream {
+
+    private static final Message PING = new Message(null, "ping");
+
+    private final GoodsRepository goodsRepository;
+    private final SalesAnalyticsStore salesAnalyticsStore;
+    private final DashboardMetrics dashboardMetrics;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final int topCategories;
+    private final long timeoutMs;
+    private final long heartbeatMs;
+    private final long sendTimeoutMs;
+    private final long categoryPollMs;
+    private final ThreadPoolExecutor sender;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder framesBuilt = new LongAdder();
+    private final LongAdder framesCoalesced = new LongAdder();
+    private final LongAdder stalledDropped = new LongAdder();
+
+    // 以下字段受 this 锁保护；生成帧和入队都在锁内，各订阅者收到的帧顺序一致
+    // 最近一帧推送的订单统计，没有订阅者时为 null
+    private Totals shown;
+    // 各分类累计销量，没有订阅者时为 null
+    private Map<String, Long> categorySales;
+    private long categoriesPolledAt;
+    private long lastSentAt = System.currentTimeMillis();
+
+    // 最近一次推送的分类销量排行，快照也会读取
+    private volatile List<Map<String, Object>> categories;
+
+    public DashboardStream(GoodsRepository goodsRepository,
+                           SalesAnalyticsStore salesAnalyticsStore,
+                           DashboardMetrics dashboardMetrics,
+                           @Value("${admin.stream.buffer-size:16}") int bufferSize,
+                           @Value("${admin.stream.max-subscribers:50}") int maxSubscribers,
+                           @Value("${admin.stream.top-categories:5}") int topCategories,
+                           @Value("${admin.stream.timeout-ms:1800000}") long timeoutMs,
+                           @Value("${admin.stream.heartbeat-ms:15000}") long heartbeatMs,
+                           @Value("${admin.stream.send-timeout-ms:10000}") long sendTimeoutMs,
+                           @Value("${admin.stream.category-poll-ms:30000}") long categoryPollMs,
+                           @Value("${admin.stream.sender-threads:4}") int senderThreads) {
+        this.goodsRepository = goodsRepository;
+        this.salesAnalyticsStore = salesAnalyticsStore;
+        this.dashboardMetrics = dashboardMetrics;
+        this.bufferSize = Math.max(bufferSize, 1);
+        this.maxSubscribers = maxSubscribers;
+        this.topCategories = topCategories;
+        this.timeoutMs = timeoutMs;
+        this.heartbeatMs = heartbeatMs;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.categoryPollMs = categoryPollMs;
+        // 每个订阅者同一时间最多占一个线程；已被移除但仍卡在发送中的订阅者也要留出线程
+        int maxThreads = Math.max(senderThreads, maxSubscribers * 2);
+        this.sender = new ThreadPoolExecutor(Math.min(senderThreads, maxThreads), maxThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread t = new Thread(r, "admin-stream-sender");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /** 新建订阅，先推送一份完整快照，之后的帧都以该快照为基线。订阅数已满时返回 null。 */
+    public SseEmitter subscribe() {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        Map<String, Object> dashboard = dashboardMetrics.current(false).data();
+        Totals totals = salesAnalyticsStore.current();
+        boolean loadCategories;
+        synchronized (this) {
+            loadCategories = categorySales == null;
+        }
+        Map<String, Long> sales = loadCategories ? loadCategorySales() : null;
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(ex -> subscribers.remove(subscriber));
+        synchronized (this) {
+            if (categorySales == null) {
+                categorySales = sales != null ? sales : loadCategorySales();
+                categoriesPolledAt = System.currentTimeMillis();
+                categories = top(categorySales);
+            }
+            if (shown == null) {
+                shown = totals;
+            }
+            subscribers.add(subscriber);
+            subscriber.enqueue(new Message("snapshot", snapshot(dashboard)));
+        }
+        return emitter;
+    }
+
+    // 订单事务提交后推送；同一聚合行包含了其他实例的变化，一并计入本帧
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (!subscribers.isEmpty()) {
+            publishTotals(salesAnalyticsStore.current());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGoodsStatsChanged(GoodsStatsChangedEvent event) {
+        if (subscribers.isEmpty() || event.getCategoryCode() == null || event.getSalesDelta() == 0) {
+            return;
+        }
+        synchronized (this) {
+            if (categorySales == null) {
+                return;
+            }
+            categorySales.merge(event.getCategoryCode(), event.getSalesDelta(), Long::sum);
+            publishCategories();
+        }
+    }
+
+    @EventListener
+    public void onTrackBatchWritten(TrackBatchWrittenEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            if (shown != null) {
+                broadcast(new Message("delta", new Frame(0L, BigDecimal.ZERO, Map.of(), event.getCountsByType(),
+                        shown.revenue(), shown.orderedStatusCounts(), null, System.currentTimeMillis())));
+            }
+        }
+    }
+
+    /**
+     * 按共用聚合行校准，补上其他实例的订单变化；分类销量按 category-poll 间隔重新聚合。
+     * 并发读取的聚合值乱序到达时可能推送一帧回退，销量事件与重新聚合交错时分类销量可能多算一次，均由下一帧修正。
+     */
+    @Scheduled(fixedDelayString = "${admin.stream.reconcile-ms:5000}")
+    public void reconcile() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        publishTotals(salesAnalyticsStore.current());
+        if (System.currentTimeMillis() - categoriesPolledAt >= categoryPollMs) {
+            Map<String, Long> sales = loadCategorySales();
+            synchronized (this) {
+                if (categorySales != null) {
+                    categorySales = sales;
+                    categoriesPolledAt = System.currentTimeMillis();
+                    publishCategories();
+                }
+            }
+        }
+    }
+
+    /** 移除发送超时的订阅者；长时间没有推送时发送心跳。不查库。 */
+    @Scheduled(fixedDelayString = "${admin.stream.interval-ms:1000}")
+    public void tick() {
+        long now = System.currentTimeMillis();
+        dropStalled(now);
+        synchronized (this) {
+            if (subscribers.isEmpty()) {
+                // 下一次有订阅时重新建立基线
+                shown = null;
+                categorySales = null;
+                return;
+            }
+            if (now - lastSentAt >= heartbeatMs) {
+                broadcast(PING);
+            }
+        }
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("subscribers", subscribers.size());
+        m.put("framesBuilt", framesBuilt.sum());
+        m.put("framesCoalesced", framesCoalesced.sum());
+        m.put("stalledDropped", stalledDropped.sum());
+        m.put("senderThreads", sender.getPoolSize());
+        return m;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        sender.shutdownNow();
+    }
+
+    private synchronized void publishTotals(Totals after) {
+        Totals before = shown;
+        if (before == null || after.equals(before)) {
+            return;
+        }
+        shown = after;
+        Map<String, Long> statusDeltas = new HashMap<>();
+        Set<String> statuses = new HashSet<>(before.statusCounts().keySet());
+        statuses.addAll(after.statusCounts().keySet());
+        for (String status : statuses) {
+            long delta = after.statusCounts().getOrDefault(status, 0L) - before.statusCounts().getOrDefault(status, 0L);
+            if (delta != 0) {
+                statusDeltas.put(status, delta);
+            }
+        }
+        broadcast(new Message("delta", new Frame(Math.max(after.createdOrders() - before.createdOrders(), 0L),
+                after.revenue().subtract(before.revenue()), statusDeltas, Map.of(),
+                after.revenue(), after.orderedStatusCounts(), null, System.currentTimeMillis())));
+    }
+
+    // 调用方持有 this 锁；排行变化时才推送
+    private void publishCategories() {
+        List<Map<String, Object>> top = top(categorySales);
+        if (top.equals(categories) || shown == null) {
+            return;
+        }
+        categories = top;
+        broadcast(new Message("delta", new Frame(0L, BigDecimal.ZERO, Map.of(), Map.of(),
+                shown.revenue(), shown.orderedStatusCounts(), top, System.currentTimeMillis())));
+    }
+
+    // 调用方持有 this 锁
+    private void broadcast(Message message) {
+        if (message.data() instanceof Frame) {
+            framesBuilt.increment();
+        }
+        lastSentAt = System.currentTimeMillis();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.enqueue(message);
+        }
+    }
+
+    // 发送超时的订阅者移出订阅集合并中断其发送线程；发送最终返回后由发送线程关闭连接
+    private void dropStalled(long now) {
+        for (Subscriber subscriber : subscribers) {
+            long startedAt = subscriber.sendStartedAt;
+            if (startedAt != 0 && now - startedAt > sendTimeoutMs && subscribers.remove(subscriber)) {
+                stalledDropped.increment();
+                Thread thread = subscriber.sendingThread;
+                if (thread != null && subscriber.sendStartedAt == startedAt) {
+                    thread.interrupt();
+                }
+            }
+        }
+    }
+
+    // 调用方持有 this 锁
+    private Map<String, Object> snapshot(Map<String, Object> dashboard) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("dashboard", dashboard);
+        data.put("revenue", shown.revenue());
+        data.put("statusCounts", shown.orderedStatusCounts());
+        data.put("topCategories", categories);
+        data.put("at", System.currentTimeMillis());
+        return data;
+    }
+
+    private Map<String, Long> loadCategorySales() {
+        Map<String, Long> sales = new HashMap<>();
+        for (Object[] row : goodsRepository.sumSalesByCategory()) {
+            if (row[0] != null) {
+                sales.put((String) row[0], row[1] == null ? 0L : ((Number) row[1]).longValue());
+            }
+        }
+        return sales;
+    }
+
+    private List<Map<String, Object>> top(Map<String, Long> sales) {
+        List<Map.Entry<String, Long>> rows = new ArrayList<>(sales.entrySet());
+        rows.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        List<Map<String, Object>> top = new ArrayList<>();
+        for (int i = 0; i < rows.size() && i < topCategories; i++) {
+            Map<String, Object> m = new HashMap<>();
+            m.put("category", rows.get(i).getKey());
+            m.put("sales", rows.get(i).getValue());
+            top.add(m);
+        }
+        return List.copyOf(top);
+    }
+
+    /**
+     * 推送给客户端的一帧：newOrders / revenueDelta / statusDeltas / trackCounts（各类型埋点条数）
+     * 是与上一帧相比的增量，revenue / statusCounts 是当前值，topCategories 只在分类销量排行变化时携带，
+     * at 为毫秒时间戳。
+     */
+    public record Frame(long newOrders, BigDecimal revenueDelta, Map<String, Long> statusDeltas,
+                        Map<String, Long> trackCounts, BigDecimal revenue, Map<String, Long> statusCounts,
+                        List<Map<String, Object>> topCategories, long at) {
+
+        // 增量相加，当前值取较新的一帧
+        Frame merge(Frame newer) {
+            Map<String, Long> merged = new HashMap<>(statusDeltas);
+            newer.statusDeltas.forEach((k, v) -> merged.merge(k, v, Long::sum));
+            merged.values().removeIf(v -> v == 0);
+            Map<String, Long> track = new HashMap<>(trackCounts);
+            newer.trackCounts.forEach((k, v) -> track.merge(k, v, Long::sum));
+            return new Frame(newOrders + newer.newOrders, revenueDelta.add(newer.revenueDelta), merged,
+                    track, newer.revenue, newer.statusCounts,
+                    newer.topCategories != null ? newer.topCategories : topCategories, newer.at);
+        }
+    }
+
+    // name 为 null 时作为 SSE 注释发送（心跳）
+    private record Message(String name, Object data) {
+    }
+
+    private final class Subscriber {
+
+        final SseEmitter emitter;
+        // 当前发送开始的毫秒时间，空闲时为 0
+        volatile long sendStartedAt;
+        volatile Thread sendingThread;
+        // 以下字段受 this 锁保护
+        private final ArrayDeque<Message> queue = new ArrayDeque<>();
+        private boolean sending;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        synchronized void enqueue(Message message) {
+            if (queue.size() >= bufferSize) {
+                Message last = queue.peekLast();
+                if (message.data() instanceof Frame newer && last.data() instanceof Frame older) {
+                    queue.pollLast();
+                    queue.addLast(new Message("delta", older.merge(newer)));
+                    framesCoalesced.increment();
+                }
+                // 缓冲已满时心跳直接丢弃
+            } else {
+                queue.addLast(message);
+            }
+            if (!sending) {
+                sending = true;
+                try {
+                    sender.execute(this::drain);
+                } catch (RejectedExecutionException ex) {
+                    // 线程已用尽（大量连接卡住），放弃该订阅者
+                    subscribers.remove(this);
+                    queue.clear();
+                }
+            }
+        }
+
+        private void drain() {
+            sendingThread = Thread.currentThread();
+            try {
+                while (true) {
+                    Message message;
+                    synchronized (this) {
+                        message = queue.pollFirst();
+                        if (message == null || !subscribers.contains(this)) {
+                            sending = false;
+                            break;
+                        }
+                    }
+                    sendStartedAt = System.currentTimeMillis();
+                    try {
+                        if (message.name() == null) {
+                            emitter.send(SseEmitter.event().comment(message.data().toString()));
+                        } else {
+                            emitter.send(SseEmitter.event().name(message.name()).data(message.data(), MediaType.APPLICATION_JSON));
+                        }
+                    } catch (IOException | IllegalStateException ex) {
+                        // 客户端已断开，sending 保持为 true，不再调度
+                        subscribers.remove(this);
+                        return;
+                    } finally {
+                        sendStartedAt = 0;
+                    }
+                }
+                if (!subscribers.contains(this)) {
+                    // 因发送超时被移除
+                    emitter.complete();
+                }
+            } finally {
+                sendingThread = null;
+                Thread.interrupted();
+            }
+        }
+    }
+}
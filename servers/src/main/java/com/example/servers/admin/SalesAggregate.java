@@ -0,0 +1,76 @@
+package com.example.servers.admin;
+
+import java.math.BigDecimal;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * 全站订单总金额和各状态订单数，只有 id = 1 一行，所有实例共用。
+ * 由 SalesAnalyticsStore 在订单状态流转的同一事务内增减，定期按 t_order 校准。
+ * created 是累计新建的订单数，删除订单不扣减，校准时保留原值，供仪表盘推送计算新订单数。
+ */
+@Entity
+@Table(name = "sales_aggregate")
+public class SalesAggregate {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(nullable = false)
+    private long created;
+
+    @Column(nullable = false)
+    private long pendingPayment;
+
+    @Column(nullable = false)
+    private long pendingShipment;
+
+    @Column(nullable = false)
+    private long pendingReceipt;
+
+    @Column(nullable = false)
+    private long completed;
+
+    @Column(nullable = false)
+    private long cancelled;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getPendingPayment() {
+        return pendingPayment;
+    }
+
+    public long getPendingShipment() {
+        return pendingShipment;
+    }
+
+    public long getPendingReceipt() {
+        return pendingReceipt;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getCancelled() {
+        return cancelled;
+    }
+}
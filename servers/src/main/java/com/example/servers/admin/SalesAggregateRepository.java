@@ -0,0 +1,27 @@
+package com.example.servers.admin;
+
+import java.math.BigDecimal;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface SalesAggregateRepository extends JpaRepository<SalesAggregate, Integer> {
+
+    // 返回更新行数，为 0 表示聚合行还没有初始化
+    @Modifying
+    @Query("UPDATE SalesAggregate s SET s.revenue = s.revenue + :revenue, s.created = s.created + :created, " +
+            "s.pendingPayment = s.pendingPayment + :pendingPayment, " +
+            "s.pendingShipment = s.pendingShipment + :pendingShipment, " +
+            "s.pendingReceipt = s.pendingReceipt + :pendingReceipt, " +
+            "s.completed = s.completed + :completed, s.cancelled = s.cancelled + :cancelled " +
+            "WHERE s.id = " + SalesAggregate.ID)
+    int addDeltas(@Param("revenue") BigDecimal revenue,
+                  @Param("created") long created,
+                  @Param("pendingPayment") long pendingPayment,
+                  @Param("pendingShipment") long pendingShipment,
+                  @Param("pendingReceipt") long pendingReceipt,
+                  @Param("completed") long completed,
+                  @Param("cancelled") long cancelled);
+}
@@ -0,0 +1,167 @@
+package com.example.servers.admin;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.servers.order.OrderRepository;
+import com.example.servers.order.OrderStatusChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 销售统计：订单总金额和各状态订单数，保存在各实例共用的 sales_aggregate 单行中。
+ * 以同步监听器处理 OrderStatusChangedEvent，在状态流转的同一事务内做相对 UPDATE：
+ * 只有条件更新成功的流转才会发布事件，订单回滚时增量一起回滚，读取只需按主键查一行。
+ * 按 status 分组扫描 t_order 只用于启动时初始化和定期校准。
+ */
+@Component
+public class SalesAnalyticsStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesAnalyticsStore.class);
+
+    private static final List<String> STATUSES =
+            List.of("PENDING_PAYMENT", "PENDING_SHIPMENT", "PENDING_RECEIPT", "COMPLETED", "CANCELLED");
+
+    private final SalesAggregateRepository aggregateRepository;
+    private final OrderRepository orderRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate reconcileTransaction;
+
+    public SalesAnalyticsStore(SalesAggregateRepository aggregateRepository,
+                               OrderRepository orderRepository,
+                               JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager) {
+        this.aggregateRepository = aggregateRepository;
+        this.orderRepository = orderRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.reconcileTransaction = new TransactionTemplate(transactionManager);
+        this.reconcileTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public Totals current() {
+        SalesAggregate row = aggregateRepository.findById(SalesAggregate.ID).orElse(null);
+        if (row == null) {
+            reconcile();
+            row = aggregateRepository.findById(SalesAggregate.ID).orElse(null);
+            if (row == null) {
+                return new Totals(BigDecimal.ZERO, 0L, Map.of());
+            }
+        }
+        long[] counts = {row.getPendingPayment(), row.getPendingShipment(), row.getPendingReceipt(),
+                row.getCompleted(), row.getCancelled()};
+        Map<String, Long> statusCounts = new HashMap<>();
+        for (int i = 0; i < STATUSES.size(); i++) {
+            if (counts[i] != 0) {
+                statusCounts.put(STATUSES.get(i), counts[i]);
+            }
+        }
+        return new Totals(row.getRevenue(), row.getCreated(), statusCounts);
+    }
+
+    // 金额按订单新建计入、删除扣减，与按 status 分组求和的口径一致（含已取消订单）
+    @EventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        long[] d = new long[STATUSES.size()];
+        int from = event.getFromStatus() == null ? -1 : STATUSES.indexOf(event.getFromStatus());
+        int to = event.getToStatus() == null ? -1 : STATUSES.indexOf(event.getToStatus());
+        BigDecimal amount = event.getTotalAmount() == null ? BigDecimal.ZERO : event.getTotalAmount();
+        BigDecimal revenue = BigDecimal.ZERO;
+        long created = 0;
+        if (event.getFromStatus() == null) {
+            revenue = amount;
+            created = 1;
+        } else if (event.getToStatus() == null) {
+            revenue = amount.negate();
+        }
+        if (from == to && revenue.signum() == 0 && created == 0) {
+            return;
+        }
+        if (from >= 0) {
+            d[from]--;
+        }
+        if (to >= 0) {
+            d[to]++;
+        }
+        if (aggregateRepository.addDeltas(revenue, created, d[0], d[1], d[2], d[3], d[4]) == 0) {
+            // 聚合行尚未初始化；不在订单事务内补行，由下次校准按订单表重新计算
+            log.warn("销售聚合行不存在，跳过本次增量：orderId={}", event.getOrderId());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        reconcile();
+    }
+
+    /**
+     * 按 t_order 重新计算并覆盖聚合行（created 只在初始化时取当前订单数）。先锁住聚合行再做分组查询：
+     * 已写过聚合行的订单事务此时均已提交并计入查询结果，其余事务等锁释放后再叠加各自的增量，不会丢失或重复。
+     */
+    @Scheduled(fixedDelayString = "${analytics.sales.reconcile-interval-ms:600000}",
+            initialDelayString = "${analytics.sales.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        reconcileTransaction.executeWithoutResult(status -> {
+            boolean exists = !jdbcTemplate.queryForList(
+                    "SELECT id FROM sales_aggregate WHERE id = ? FOR UPDATE", Integer.class, SalesAggregate.ID).isEmpty();
+            BigDecimal revenue = BigDecimal.ZERO;
+            long[] c = new long[STATUSES.size()];
+            long orders = 0;
+            for (Object[] row : orderRepository.aggregateByStatus()) {
+                orders += ((Number) row[1]).longValue();
+                int i = STATUSES.indexOf((String) row[0]);
+                if (i >= 0) {
+                    c[i] = ((Number) row[1]).longValue();
+                }
+                if (row[2] != null) {
+                    revenue = revenue.add((BigDecimal) row[2]);
+                }
+            }
+            if (exists) {
+                jdbcTemplate.update("UPDATE sales_aggregate SET revenue = ?, pending_payment = ?, pending_shipment = ?, " +
+                        "pending_receipt = ?, completed = ?, cancelled = ? WHERE id = ?",
+                        revenue, c[0], c[1], c[2], c[3], c[4], SalesAggregate.ID);
+                return;
+            }
+            try {
+                jdbcTemplate.update("INSERT INTO sales_aggregate (id, revenue, created, pending_payment, " +
+                        "pending_shipment, pending_receipt, completed, cancelled) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                        SalesAggregate.ID, revenue, orders, c[0], c[1], c[2], c[3], c[4]);
+            } catch (DuplicateKeyException ex) {
+                // 其他实例已初始化
+            }
+        });
+    }
+
+    /** createdOrders 为累计新建的订单数，只用于计算两次读取之间的新订单数 */
+    public record Totals(BigDecimal revenue, long createdOrders, Map<String, Long> statusCounts) {
+
+        public Totals {
+            statusCounts = Map.copyOf(statusCounts);
+        }
+
+        /** 按固定的状态顺序输出，未出现的状态不输出 */
+        public Map<String, Long> orderedStatusCounts() {
+            Map<String, Long> ordered = new LinkedHashMap<>();
+            for (String status : STATUSES) {
+                Long count = statusCounts.get(status);
+                if (count != null) {
+                    ordered.put(status, count);
+                }
+            }
+            statusCounts.forEach(ordered::putIfAbsent);
+            return ordered;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.servers.cache;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * 内存缓存的版本号，每个缓存一行。任一实例修改数据后递增版本，
+ * 其他实例轮询到版本变化即重建本地缓存。
+ */
+@Entity
+@Table(name = "cache_version")
+public class CacheVersion {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(nullable = false)
+    private Long version;
+
+    @Column
+    private Instant updatedAt;
+
+    public CacheVersion() {
+    }
+
+    public CacheVersion(String name, Long version, Instant updatedAt) {
+        this.name = name;
+        this.version = version;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
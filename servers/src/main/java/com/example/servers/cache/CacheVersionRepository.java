@@ -0,0 +1,17 @@
+package com.example.servers.cache;
+
+import java.time.Instant;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface CacheVersionRepository extends JpaRepository<CacheVersion, String> {
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE CacheVersion c SET c.version = c.version + 1, c.updatedAt = :now WHERE c.name = :name")
+    int increment(@Param("name") String name, @Param("now") Instant now);
+}
@@ -0,0 +1,84 @@
+package com.example.servers.cache;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 跨实例的缓存失效协调。
+ * 本地数据变更只登记缓存名（可在 JPA 回调中安全调用），由定时任务统一
+ * 递增 cache_version 并拉取所有版本号，版本变化时回调已注册的重建逻辑。
+ */
+@Component
+public class CacheVersions {
+
+    private final CacheVersionRepository repository;
+    private final Map<String, List<Runnable>> listeners = new ConcurrentHashMap<>();
+    private final Map<String, Long> seenVersions = new ConcurrentHashMap<>();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    public CacheVersions(CacheVersionRepository repository) {
+        this.repository = repository;
+    }
+
+    public void register(String name, Runnable onChange) {
+        listeners.computeIfAbsent(name, k -> new CopyOnWriteArrayList<>()).add(onChange);
+    }
+
+    public void markChanged(String name) {
+        pending.add(name);
+    }
+
+    @Scheduled(fixedDelayString = "${cache.version.poll-interval-ms:5000}")
+    public synchronized void sync() {
+        List<String> bumped = new ArrayList<>();
+        for (String name : new ArrayList<>(pending)) {
+            // 先移除再递增：递增期间新登记的变更留到下一轮；递增失败时重新登记，不丢失本次变更
+            pending.remove(name);
+            try {
+                increment(name);
+                bumped.add(name);
+            } catch (RuntimeException ex) {
+                pending.add(name);
+                System.err.println("缓存版本递增失败，下次重试: " + name + " - " + ex.getMessage());
+            }
+        }
+        for (CacheVersion row : repository.findAll()) {
+            Long previous = seenVersions.put(row.getName(), row.getVersion());
+            if (!row.getVersion().equals(previous) || bumped.contains(row.getName())) {
+                fire(row.getName());
+            }
+        }
+    }
+
+    private void increment(String name) {
+        Instant now = Instant.now();
+        if (repository.increment(name, now) > 0) {
+            return;
+        }
+        try {
+            repository.save(new CacheVersion(name, 1L, now));
+        } catch (DataIntegrityViolationException ex) {
+            // 其他实例刚插入同名记录
+            repository.increment(name, now);
+        }
+    }
+
+    private void fire(String name) {
+        for (Runnable listener : listeners.getOrDefault(name, List.of())) {
+            try {
+                listener.run();
+            } catch (RuntimeException ex) {
+                System.err.println("缓存重建失败: " + name + " - " + ex.getMessage());
+            }
+        }
+    }
+}
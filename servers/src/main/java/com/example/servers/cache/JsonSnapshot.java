@@ -0,0 +1,129 @@
+package com.example.servers.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * 预先序列化好的 JSON 响应：UTF-8 原文、gzip 压缩版本和基于内容哈希的 ETag。
+ * 序列化使用 Spring MVC 的 JsonMapper，输出与普通接口一致（日期格式、命名策略等）。
+ * 请求携带匹配的 If-None-Match 时返回 304，否则直接写出缓存的字节。
+ */
+public final class JsonSnapshot {
+
+    private final byte[] json;
+    private final byte[] gzip;
+    private final String etag;
+
+    private JsonSnapshot(byte[] json, byte[] gzip, String etag) {
+        this.json = json;
+        this.gzip = gzip;
+        this.etag = etag;
+    }
+
+    public static JsonSnapshot of(JsonMapper mapper, Object payload) {
+        try {
+            byte[] json = mapper.writeValueAsBytes(payload);
+            return new JsonSnapshot(json, gzip(json), "W/\"" + sha256(json) + "\"");
+        } catch (JacksonException ex) {
+            throw new IllegalStateException("无法序列化缓存内容", ex);
+        }
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void writeTo(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("Vary", "Accept-Encoding");
+        if (matches(request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        boolean useGzip = acceptsGzip(request.getHeader("Accept-Encoding"));
+        byte[] body = useGzip ? gzip : json;
+        response.setContentType("application/json;charset=UTF-8");
+        if (useGzip) {
+            response.setHeader("Content-Encoding", "gzip");
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if ("*".equals(tag) || etag.equals(tag) || etag.equals("W/" + tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // gzip;q=0 表示明确拒绝；没有 gzip 项时看 * 的 q 值
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return false;
+        }
+        Double gzipQ = null;
+        Double wildcardQ = null;
+        for (String item : acceptEncoding.split(",")) {
+            String[] parts = item.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.length() > 2 && (param.startsWith("q=") || param.startsWith("Q="))) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException ex) {
+                        q = 0.0;
+                    }
+                }
+            }
+            if ("gzip".equals(coding) || "x-gzip".equals(coding)) {
+                gzipQ = gzipQ == null ? q : Math.max(gzipQ, q);
+            } else if ("*".equals(coding)) {
+                wildcardQ = q;
+            }
+        }
+        if (gzipQ != null) {
+            return gzipQ > 0;
+        }
+        return wildcardQ != null && wildcardQ > 0;
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(data.length / 4, 64));
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -3,13 +3,16 @@ package com.example.servers.cart;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.example.servers.BaseResponse;
 import com.example.servers.goods.Goods;
 import com.example.servers.goods.GoodsRepository;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
@@ -21,15 +24,18 @@ public class CartController {
     private final CartItemRepository cartItemRepository;
     private final CartRepository cartRepository;
     private final GoodsRepository goodsRepository;
+    private final MaybeLikePool maybeLikePool;
 
     public CartController(StoreRepository storeRepository,
                           CartItemRepository cartItemRepository,
                           CartRepository cartRepository,
-                          GoodsRepository goodsRepository) {
+                          GoodsRepository goodsRepository,
+                          MaybeLikePool maybeLikePool) {
         this.storeRepository = storeRepository;
         this.cartItemRepository = cartItemRepository;
         this.cartRepository = cartRepository;
         this.goodsRepository = goodsRepository;
+        this.maybeLikePool = maybeLikePool;
     }
 
     @PostMapping("/cart/queryCartGoodsList")
@@ -155,6 +161,7 @@ public class CartController {
         item.setImgUrl(goods.getImgUrl());
         item.setDescription(goods.getDescription());
         item.setPrice(goods.getPrice());
+        item.setPriceFen(goods.getPriceFen());
         item.setColor(color);
         item.setSize(size);
         item.setNum(Math.max(num, 1));
@@ -326,19 +333,30 @@ public class CartController {
         return owner != null && owner.equals(userId);
     }
 
+    // 不带请求体（也没有 Content-Type）的调用按游客处理，随机推荐
     @PostMapping("/cart/queryMaybeLikeList")
     public BaseResponse<List<Map<String, Object>>> queryMaybeLikeList() {
-        List<Goods> goods = goodsRepository.findByRecommendTrue(org.springframework.data.domain.Pageable.unpaged()).getContent();
+        return queryMaybeLikeList(null);
+    }
+
+    // 请求体必填，不带请求体的调用才会落到上面的无参版本
+    @PostMapping(value = "/cart/queryMaybeLikeList", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BaseResponse<List<Map<String, Object>>> queryMaybeLikeList(@RequestBody Map<String, Object> body) {
+        int pageSize = body != null && body.get("pageSize") instanceof Number ? ((Number) body.get("pageSize")).intValue() : 20;
+        pageSize = Math.min(Math.max(pageSize, 1), 50);
+        Set<String> inCart = new HashSet<>(cartItemRepository.findCodesByUserId(resolveUserId(body)));
+        List<MaybeLikePool.Item> items = body != null && body.get("pageNo") instanceof Number
+                ? maybeLikePool.page(((Number) body.get("pageNo")).intValue(), pageSize, inCart)
+                : maybeLikePool.sample(pageSize, inCart);
         List<Map<String, Object>> list = new ArrayList<>();
-        for (Goods g : goods) {
+        for (MaybeLikePool.Item g : items) {
             Map<String, Object> m = new HashMap<>();
-            m.put("imgUrl", g.getImgUrl());
-            m.put("description", g.getDescription());
-            m.put("price", g.getPrice());
-            m.put("type", g.getType());
+            m.put("imgUrl", g.imgUrl());
+            m.put("description", g.description());
+            m.put("price", g.price());
+            m.put("type", g.type());
             list.add(m);
         }
         return BaseResponse.success(list);
     }
 }
-
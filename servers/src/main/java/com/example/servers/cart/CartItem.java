@@ -37,6 +37,10 @@ public class CartItem {
     @Column
     private String price;
 
+    /** 加购时的商品价格（分） */
+    @Column
+    private Long priceFen;
+
     @Column
     private String color;
 
@@ -114,6 +118,14 @@ public class CartItem {
         this.price = price;
     }
 
+    public Long getPriceFen() {
+        return priceFen;
+    }
+
+    public void setPriceFen(Long priceFen) {
+        this.priceFen = priceFen;
+    }
+
     public String getColor() {
         return color;
     }
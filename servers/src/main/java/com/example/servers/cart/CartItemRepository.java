@@ -3,6 +3,8 @@ package com.example.servers.cart;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
 
@@ -17,5 +19,9 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     List<CartItem> findByCartIdAndSelected(Long cartId, Boolean selected);
 
     void deleteByCart(Cart cart);
+
+    // 只取商品编码，用于推荐列表排除购物车中已有的商品
+    @Query("SELECT i.code FROM CartItem i WHERE i.cart.userId = :userId")
+    List<String> findCodesByUserId(@Param("userId") String userId);
 }
 
@@ -0,0 +1,96 @@
+package com.example.servers.cart;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.example.servers.goods.Goods;
+import com.example.servers.goods.GoodsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 购物车“猜你喜欢”的推荐池。
+ * 后台定时取销量、评分最高的一批 recommend 商品，打乱顺序后整体替换；
+ * 请求从随机位置开始取一页，或按 pageNo 分页，跳过购物车中已有的商品。
+ */
+@Component
+public class MaybeLikePool {
+
+    private final GoodsRepository goodsRepository;
+    private final int capacity;
+
+    private volatile List<Item> pool = List.of();
+
+    public MaybeLikePool(GoodsRepository goodsRepository,
+                         @Value("${cart.maybe-like.pool-size:200}") int capacity) {
+        this.goodsRepository = goodsRepository;
+        this.capacity = capacity;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    @Scheduled(initialDelayString = "${cart.maybe-like.refresh-interval-ms:300000}",
+            fixedDelayString = "${cart.maybe-like.refresh-interval-ms:300000}")
+    public void refresh() {
+        Sort ranking = Sort.by(Sort.Order.desc("salesCount"), Sort.Order.desc("rating"), Sort.Order.desc("id"));
+        List<Goods> goods = goodsRepository.findByRecommendTrue(PageRequest.of(0, capacity, ranking)).getContent();
+        List<Item> fresh = new ArrayList<>(goods.size());
+        for (Goods g : goods) {
+            fresh.add(new Item(String.valueOf(g.getId()), g.getImgUrl(), g.getDescription(), g.getPrice(), g.getType()));
+        }
+        Collections.shuffle(fresh);
+        pool = List.copyOf(fresh);
+    }
+
+    /** 从随机位置开始循环取 pageSize 个 */
+    public List<Item> sample(int pageSize, Set<String> excludeCodes) {
+        List<Item> current = pool;
+        if (current.isEmpty()) {
+            return List.of();
+        }
+        int start = ThreadLocalRandom.current().nextInt(current.size());
+        List<Item> result = new ArrayList<>(Math.min(pageSize, current.size()));
+        for (int i = 0; i < current.size() && result.size() < pageSize; i++) {
+            Item item = current.get((start + i) % current.size());
+            if (!excludeCodes.contains(item.code())) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    /** 按固定顺序分页，pageNo 从 1 开始 */
+    public List<Item> page(int pageNo, int pageSize, Set<String> excludeCodes) {
+        List<Item> current = pool;
+        int skip = (Math.max(pageNo, 1) - 1) * pageSize;
+        List<Item> result = new ArrayList<>(pageSize);
+        for (Item item : current) {
+            if (result.size() >= pageSize) {
+                break;
+            }
+            if (excludeCodes.contains(item.code())) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            result.add(item);
+        }
+        return result;
+    }
+
+    public record Item(String code, String imgUrl, String description, String price, String type) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.servers.category;
+
+import com.example.servers.cache.CacheVersions;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * category 表写入后登记缓存失效，由 CacheVersions 通知所有实例重建分类树。
+ * 由 Hibernate 通过 Spring 容器创建；CacheVersions 延迟注入，避免与 EntityManagerFactory 循环依赖。
+ */
+public class CategoryCacheListener {
+
+    private final CacheVersions cacheVersions;
+
+    public CategoryCacheListener(@Lazy CacheVersions cacheVersions) {
+        this.cacheVersions = cacheVersions;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        cacheVersions.markChanged(CategoryTree.CACHE_NAME);
+    }
+}
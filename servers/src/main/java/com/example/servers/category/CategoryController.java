@@ -13,15 +13,15 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 public class CategoryController {
 
-    private final CategoryRepository repository;
+    private final CategoryTree categoryTree;
 
-    public CategoryController(CategoryRepository repository) {
-        this.repository = repository;
+    public CategoryController(CategoryTree categoryTree) {
+        this.categoryTree = categoryTree;
     }
 
     @PostMapping("/category/list")
     public BaseResponse<Map<String, Object>> list() {
-        List<Category> list = repository.findByLevelOrderByIdAsc(1);
+        List<Category> list = categoryTree.current().findByLevel(1);
         Map<String, Object> data = new HashMap<>();
         data.put("categoryList", list);
         return BaseResponse.success(data);
@@ -30,18 +30,18 @@ public class CategoryController {
     @PostMapping("/category/queryContentByCategory")
     public BaseResponse<Map<String, Object>> queryContentByCategory(@RequestBody Map<String, Object> body) {
         String code = body.get("code") == null ? null : body.get("code").toString();
-        return buildResponseFromDatabase(code);
+        return buildResponse(categoryTree.current(), code);
     }
 
-    private BaseResponse<Map<String, Object>> buildResponseFromDatabase(String code) {
+    private BaseResponse<Map<String, Object>> buildResponse(CategoryTree.Snapshot tree, String code) {
         String rootCode = (code == null || code.isEmpty()) ? "000" : code;
-        String bannerUrl = repository.findByCode(rootCode)
+        String bannerUrl = tree.findByCode(rootCode)
                 .map(Category::getBannerUrl)
                 .orElse(null);
 
-        List<Category> second = repository.findByParentCodeOrderByIdAsc(rootCode);
+        List<Category> second = tree.findByParentCode(rootCode);
         if (second.isEmpty()) {
-            second = repository.findByLevelOrderByIdAsc(2);
+            second = tree.findByLevel(2);
         }
 
         List<Map<String, Object>> secondCateList = new ArrayList<>();
@@ -50,7 +50,7 @@ public class CategoryController {
             secondItem.put("categoryName", s.getName());
             secondItem.put("categoryCode", s.getCode());
 
-            List<Category> third = repository.findByParentCodeOrderByIdAsc(s.getCode());
+            List<Category> third = tree.findByParentCode(s.getCode());
             List<Map<String, Object>> cateList = new ArrayList<>();
             for (Category t : third) {
                 Map<String, Object> thirdItem = new HashMap<>();
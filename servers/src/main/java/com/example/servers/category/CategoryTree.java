@@ -0,0 +1,102 @@
+package com.example.servers.category;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.example.servers.cache.CacheVersions;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+/**
+ * 整张 category 表的内存树，按 code、parentCode、level 建索引。
+ * 分类数据变更后通过 cache_version 在所有实例上重建。
+ */
+@Component
+public class CategoryTree {
+
+    public static final String CACHE_NAME = "category";
+
+    private final CategoryRepository repository;
+
+    private volatile Snapshot snapshot;
+
+    public CategoryTree(CategoryRepository repository, CacheVersions cacheVersions) {
+        this.repository = repository;
+        cacheVersions.register(CACHE_NAME, this::reload);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        snapshot = Snapshot.of(repository.findAll(Sort.by("id")));
+    }
+
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    public static final class Snapshot {
+
+        private final Map<String, Category> byCode;
+        private final Map<String, List<Category>> byParentCode;
+        private final Map<Integer, List<Category>> byLevel;
+
+        private Snapshot(Map<String, Category> byCode,
+                         Map<String, List<Category>> byParentCode,
+                         Map<Integer, List<Category>> byLevel) {
+            this.byCode = byCode;
+            this.byParentCode = byParentCode;
+            this.byLevel = byLevel;
+        }
+
+        // categories 已按 id 升序
+        static Snapshot of(List<Category> categories) {
+            Map<String, Category> byCode = new HashMap<>();
+            Map<String, List<Category>> byParentCode = new HashMap<>();
+            Map<Integer, List<Category>> byLevel = new HashMap<>();
+            for (Category c : categories) {
+                if (c.getCode() != null) {
+                    byCode.putIfAbsent(c.getCode(), c);
+                }
+                if (c.getParentCode() != null) {
+                    byParentCode.computeIfAbsent(c.getParentCode(), k -> new ArrayList<>()).add(c);
+                }
+                if (c.getLevel() != null) {
+                    byLevel.computeIfAbsent(c.getLevel(), k -> new ArrayList<>()).add(c);
+                }
+            }
+            return new Snapshot(Map.copyOf(byCode), copyLists(byParentCode), copyLists(byLevel));
+        }
+
+        private static <K> Map<K, List<Category>> copyLists(Map<K, List<Category>> source) {
+            Map<K, List<Category>> copy = new HashMap<>();
+            source.forEach((k, v) -> copy.put(k, List.copyOf(v)));
+            return Map.copyOf(copy);
+        }
+
+        public Optional<Category> findByCode(String code) {
+            return Optional.ofNullable(byCode.get(code));
+        }
+
+        public List<Category> findByParentCode(String parentCode) {
+            return byParentCode.getOrDefault(parentCode, List.of());
+        }
+
+        public List<Category> findByLevel(int level) {
+            return byLevel.getOrDefault(level, List.of());
+        }
+    }
+}
@@ -1,9 +1,6 @@
 package com.example.servers.detail;
 
 import com.example.servers.BaseResponse;
-import com.example.servers.goods.Goods;
-import com.example.servers.goods.GoodsRepository;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
@@ -15,38 +12,22 @@ import java.util.Map;
 @RestController
 public class DetailController {
 
-    private final GoodsRepository goodsRepository;
+    private final GoodsDetailCache detailCache;
+    private final RelatedGoodsService relatedGoodsService;
 
-    public DetailController(GoodsRepository goodsRepository) {
-        this.goodsRepository = goodsRepository;
+    public DetailController(GoodsDetailCache detailCache, RelatedGoodsService relatedGoodsService) {
+        this.detailCache = detailCache;
+        this.relatedGoodsService = relatedGoodsService;
     }
 
     @PostMapping("/detail/queryGoodsDetail")
     public BaseResponse<Map<String, Object>> queryGoodsDetail(@RequestBody Map<String, Object> body) {
         String goodsId = body.get("goodsId") == null ? null : body.get("goodsId").toString();
-        Goods goods = parseGoods(goodsId);
+        Long id = parseGoodsId(goodsId);
+        GoodsDetailView goods = id == null ? null : detailCache.get(id);
         if (goods == null) {
             return new BaseResponse<>("404", "商品不存在", null);
         }
-        // 设置占位数据
-        if (goods.getStoreName() == null) {
-            goods.setStoreName("爱回收严选手机旗舰店");
-        }
-        if (goods.getStoreRating() == null) {
-            goods.setStoreRating(4.8);
-        }
-        if (goods.getStoreLevel() == null) {
-            goods.setStoreLevel("钻石级");
-        }
-        if (goods.getShipping() == null) {
-            goods.setShipping("包邮");
-        }
-        if (goods.getSalesCount() == null) {
-            goods.setSalesCount(8600);
-        }
-        if (goods.getRating() == null) {
-            goods.setRating(4.8);
-        }
         Map<String, Object> data = new HashMap<>();
         data.put("goods", goods);
         return BaseResponse.success(data);
@@ -55,24 +36,24 @@ public class DetailController {
     @PostMapping("/detail/queryStoreGoodsList")
     public BaseResponse<Map<String, Object>> queryStoreGoodsList(@RequestBody Map<String, Object> body) {
         String goodsId = body.get("goodsId") == null ? null : body.get("goodsId").toString();
-        Goods goods = parseGoods(goodsId);
+        Long id = parseGoodsId(goodsId);
+        GoodsDetailView goods = id == null ? null : detailCache.get(id);
         if (goods == null) {
             return new BaseResponse<>("404", "商品不存在", null);
         }
-        String categoryCode = goods.getCategoryCode();
-        List<Goods> list = goodsRepository.findByCategoryCode(categoryCode, PageRequest.of(0, 10)).getContent();
+        String categoryCode = goods.categoryCode();
+        List<GoodsDetailView> list = relatedGoodsService.related(categoryCode, id);
         Map<String, Object> data = new HashMap<>();
         data.put("goodsList", list);
         return BaseResponse.success(data);
     }
 
-    private Goods parseGoods(String goodsId) {
+    private Long parseGoodsId(String goodsId) {
         if (goodsId == null || goodsId.isEmpty()) {
             return null;
         }
         try {
-            Long id = Long.parseLong(goodsId);
-            return goodsRepository.findById(id).orElse(null);
+            return Long.parseLong(goodsId);
         } catch (NumberFormatException ex) {
             return null;
         }
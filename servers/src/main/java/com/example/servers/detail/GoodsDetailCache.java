@@ -0,0 +1,146 @@
+package com.example.servers.detail;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.servers.goods.GoodsChangedEvent;
+import com.example.servers.goods.GoodsCounters;
+import com.example.servers.goods.GoodsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 商品详情的读穿缓存。
+ * 按 id 缓存不可变的 GoodsDetailView，超过容量时淘汰最久未访问的条目，条目到期后重新加载；
+ * 同一 id 的并发未命中只触发一次数据库读取，其余请求等待同一个结果。
+ * 管理端修改或上下架商品时失效对应条目。
+ */
+@Component
+public class GoodsDetailCache {
+
+    private final GoodsRepository repository;
+    private final GoodsCounters counters;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    // 按访问顺序排列，所有访问都在 entries 上加锁
+    private final Map<Long, Entry> entries;
+    private final Map<Long, CompletableFuture<Optional<Entry>>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public GoodsDetailCache(GoodsRepository repository,
+                            GoodsCounters counters,
+                            @Value("${goods.detail.cache.max-size:10000}") int maxSize,
+                            @Value("${goods.detail.cache.ttl-ms:300000}") long ttlMs) {
+        this.repository = repository;
+        this.counters = counters;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, GoodsDetailCache.Entry> eldest) {
+                if (size() > GoodsDetailCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** 商品不存在时返回 null，浏览量 / 销量已叠加尚未落库的增量 */
+    public GoodsDetailView get(Long id) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(id);
+        }
+        if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+            hits.increment();
+            return withPendingCounts(id, entry);
+        }
+        misses.increment();
+        CompletableFuture<Optional<Entry>> future = new CompletableFuture<>();
+        CompletableFuture<Optional<Entry>> running = loading.putIfAbsent(id, future);
+        if (running != null) {
+            Entry loaded = await(running);
+            return loaded == null ? null : withPendingCounts(id, loaded);
+        }
+        try {
+            loads.increment();
+            // 先取计数标记再读库，之后新增的计数不会被漏掉
+            GoodsCounters.Mark mark = counters.mark(id);
+            Optional<Entry> loaded = repository.findById(id)
+                    .map(g -> new Entry(GoodsDetailView.of(g), mark, System.nanoTime() + ttlNanos));
+            // 加载期间被 invalidate 时 loading 中已没有本次的 future，结果不写入缓存
+            synchronized (entries) {
+                if (loading.remove(id, future)) {
+                    loaded.ifPresent(e -> entries.put(id, e));
+                }
+            }
+            future.complete(loaded);
+            return loaded.map(e -> withPendingCounts(id, e)).orElse(null);
+        } catch (RuntimeException ex) {
+            loading.remove(id, future);
+            future.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    private GoodsDetailView withPendingCounts(Long id, Entry entry) {
+        GoodsCounters.Mark delta = counters.since(id, entry.mark);
+        return entry.view.plusCounts(delta.views(), delta.sales());
+    }
+
+    public void invalidate(Long id) {
+        if (id == null) {
+            return;
+        }
+        synchronized (entries) {
+            loading.remove(id);
+            entries.remove(id);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGoodsChanged(GoodsChangedEvent event) {
+        invalidate(event.getGoods().getId());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        synchronized (entries) {
+            m.put("size", entries.size());
+        }
+        m.put("maxSize", maxSize);
+        m.put("hits", hits.sum());
+        m.put("misses", misses.sum());
+        m.put("loads", loads.sum());
+        m.put("evictions", evictions.sum());
+        return m;
+    }
+
+    private static Entry await(CompletableFuture<Optional<Entry>> future) {
+        try {
+            return future.join().orElse(null);
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private record Entry(GoodsDetailView view, GoodsCounters.Mark mark, long expiresAt) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.servers.detail;
+
+import java.time.Instant;
+
+import com.example.servers.goods.Goods;
+
+/**
+ * 商品详情的不可变视图，字段名与 Goods 的 JSON 输出一致，
+ * 占位数据在这里补齐，不再写回托管的 Goods 实体。
+ */
+public record GoodsDetailView(Long id, String categoryCode, String imgUrl, String description, String tag,
+                              String des1, String des2, String type, String price, Long priceFen, String h5url,
+                              Boolean recommend, String status, Integer salesCount, Double rating,
+                              Integer viewCount, Instant createdAt, String storeName, Double storeRating,
+                              String storeLevel, String shipping) {
+
+    public static GoodsDetailView of(Goods g) {
+        // 设置占位数据
+        return new GoodsDetailView(g.getId(), g.getCategoryCode(), g.getImgUrl(), g.getDescription(), g.getTag(),
+                g.getDes1(), g.getDes2(), g.getType(), g.getPrice(), g.getPriceFen(), g.getH5url(),
+                g.getRecommend(), g.getStatus(),
+                orDefault(g.getSalesCount(), 8600),
+                orDefault(g.getRating(), 4.8),
+                g.getViewCount(), g.getCreatedAt(),
+                orDefault(g.getStoreName(), "爱回收严选手机旗舰店"),
+                orDefault(g.getStoreRating(), 4.8),
+                orDefault(g.getStoreLevel(), "钻石级"),
+                orDefault(g.getShipping(), "包邮"));
+    }
+
+    /** 原样复制，不补占位数据（用于列表） */
+    public static GoodsDetailView copyOf(Goods g) {
+        return new GoodsDetailView(g.getId(), g.getCategoryCode(), g.getImgUrl(), g.getDescription(), g.getTag(),
+                g.getDes1(), g.getDes2(), g.getType(), g.getPrice(), g.getPriceFen(), g.getH5url(),
+                g.getRecommend(), g.getStatus(), g.getSalesCount(), g.getRating(), g.getViewCount(),
+                g.getCreatedAt(), g.getStoreName(), g.getStoreRating(), g.getStoreLevel(), g.getShipping());
+    }
+
+    public GoodsDetailView withStats(Integer salesCount, Double rating) {
+        return new GoodsDetailView(id, categoryCode, imgUrl, description, tag, des1, des2, type, price, priceFen,
+                h5url, recommend, status, salesCount, rating, viewCount, createdAt, storeName, storeRating,
+                storeLevel, shipping);
+    }
+
+    /** 叠加尚未体现在本视图中的浏览量 / 销量增量 */
+    public GoodsDetailView plusCounts(long views, long sales) {
+        if (views == 0 && sales == 0) {
+            return this;
+        }
+        Integer newViewCount = (int) ((viewCount == null ? 0 : viewCount) + views);
+        Integer newSalesCount = (int) ((salesCount == null ? 0 : salesCount) + sales);
+        return new GoodsDetailView(id, categoryCode, imgUrl, description, tag, des1, des2, type, price, priceFen,
+                h5url, recommend, status, newSalesCount, rating, newViewCount, createdAt, storeName, storeRating,
+                storeLevel, shipping);
+    }
+
+    private static <T> T orDefault(T value, T fallback) {
+        return value == null ? fallback : value;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.servers.detail;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.example.servers.goods.Goods;
+import com.example.servers.goods.GoodsChangedEvent;
+import com.example.servers.goods.GoodsRepository;
+import com.example.servers.goods.GoodsStatsChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 详情页“同店 / 同类商品”列表。
+ * 每个分类在内存中保留按销量、评分排序的前 N + 1 个商品（多留一个用于排除当前商品），
+ * 销量变化时在内存中调整名次，管理端修改商品时重新查询受影响的分类。
+ */
+@Component
+public class RelatedGoodsService {
+
+    private static final int BUILD_BATCH_SIZE = 1000;
+
+    // 与 ORDER BY salesCount DESC, rating DESC, id DESC 一致，NULL 在后
+    static final Comparator<GoodsDetailView> RANKING = Comparator
+            .comparing(GoodsDetailView::salesCount, Comparator.nullsFirst(Comparator.<Integer>naturalOrder())).reversed()
+            .thenComparing(Comparator.comparing(GoodsDetailView::rating,
+                    Comparator.nullsFirst(Comparator.<Double>naturalOrder())).reversed())
+            .thenComparing(Comparator.comparing(GoodsDetailView::id).reversed());
+
+    private final GoodsRepository repository;
+    private final int size;
+    private final Map<String, List<GoodsDetailView>> byCategory = new ConcurrentHashMap<>();
+
+    private volatile boolean ready = false;
+
+    public RelatedGoodsService(GoodsRepository repository,
+                               @Value("${goods.related.size:10}") int size) {
+        this.repository = repository;
+        this.size = size;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Map<String, PriorityQueue<GoodsDetailView>> tops = new HashMap<>();
+        long lastId = 0L;
+        while (true) {
+            List<Goods> batch = repository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.ofSize(BUILD_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (Goods g : batch) {
+                if (g.getCategoryCode() == null) {
+                    continue;
+                }
+                // 小顶堆只保留每个分类的前 N + 1 个
+                PriorityQueue<GoodsDetailView> top = tops.computeIfAbsent(g.getCategoryCode(),
+                        k -> new PriorityQueue<>(RANKING.reversed()));
+                top.add(GoodsDetailView.copyOf(g));
+                if (top.size() > size + 1) {
+                    top.poll();
+                }
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+        Map<String, List<GoodsDetailView>> fresh = new HashMap<>();
+        tops.forEach((code, top) -> {
+            List<GoodsDetailView> list = new ArrayList<>(top);
+            list.sort(RANKING);
+            fresh.put(code, List.copyOf(list));
+        });
+        byCategory.putAll(fresh);
+        byCategory.keySet().retainAll(fresh.keySet());
+        ready = true;
+    }
+
+    /**
+     * 返回同分类中除 excludeId 以外的前 N 个商品。
+     */
+    public List<GoodsDetailView> related(String categoryCode, Long excludeId) {
+        if (categoryCode == null) {
+            return List.of();
+        }
+        List<GoodsDetailView> top = byCategory.get(categoryCode);
+        if (top == null) {
+            if (ready) {
+                return List.of();
+            }
+            top = load(categoryCode);
+        }
+        List<GoodsDetailView> result = new ArrayList<>(Math.min(top.size(), size));
+        for (GoodsDetailView v : top) {
+            if (result.size() >= size) {
+                break;
+            }
+            if (!v.id().equals(excludeId)) {
+                result.add(v);
+            }
+        }
+        return result;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGoodsChanged(GoodsChangedEvent event) {
+        Goods goods = event.getGoods();
+        if (goods.getId() == null) {
+            return;
+        }
+        // 商品可能换了分类，旧分类中的条目也要重新查询
+        List<String> affected = new ArrayList<>();
+        if (goods.getCategoryCode() != null) {
+            affected.add(goods.getCategoryCode());
+        }
+        byCategory.forEach((code, list) -> {
+            if (!affected.contains(code) && list.stream().anyMatch(v -> v.id().equals(goods.getId()))) {
+                affected.add(code);
+            }
+        });
+        for (String code : affected) {
+            reloadCategory(code);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGoodsStatsChanged(GoodsStatsChangedEvent event) {
+        String code = event.getCategoryCode();
+        if (code == null || event.getGoodsId() == null) {
+            return;
+        }
+        boolean[] reload = {false};
+        byCategory.compute(code, (k, list) -> {
+            if (list == null) {
+                reload[0] = ready;
+                return null;
+            }
+            List<GoodsDetailView> updated = new ArrayList<>(list);
+            for (int i = 0; i < updated.size(); i++) {
+                if (updated.get(i).id().equals(event.getGoodsId())) {
+                    updated.set(i, updated.get(i).withStats(event.getSalesCount(), event.getRating()));
+                    updated.sort(RANKING);
+                    return List.copyOf(updated);
+                }
+            }
+            // 不在榜内：只有可能挤进榜单时才回表取完整数据
+            GoodsDetailView probe = new GoodsDetailView(event.getGoodsId(), code, null, null, null, null, null,
+                    null, null, null, null, null, null, event.getSalesCount(), event.getRating(), null, null,
+                    null, null, null, null);
+            reload[0] = updated.size() <= size || RANKING.compare(probe, updated.get(updated.size() - 1)) < 0;
+            return list;
+        });
+        if (reload[0]) {
+            reloadCategory(code);
+        }
+    }
+
+    private void reloadCategory(String code) {
+        List<GoodsDetailView> top = load(code);
+        if (top.isEmpty()) {
+            byCategory.remove(code);
+        } else {
+            byCategory.put(code, top);
+        }
+    }
+
+    private List<GoodsDetailView> load(String code) {
+        List<GoodsDetailView> top = new ArrayList<>();
+        for (Goods g : repository.findByCategoryCodeOrderBySalesCountDescRatingDescIdDesc(code, PageRequest.of(0, size + 1))) {
+            top.add(GoodsDetailView.copyOf(g));
+        }
+        return List.copyOf(top);
+    }
+}
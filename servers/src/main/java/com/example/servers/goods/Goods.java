@@ -5,12 +5,25 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 
 import java.time.Instant;
 
 @Entity
-@Table(name = "goods")
+@Table(name = "goods", indexes = {
+        @Index(name = "idx_goods_category_type_price", columnList = "categoryCode, type, priceFen"),
+        @Index(name = "idx_goods_price", columnList = "priceFen, id"),
+        // 以下与 GoodsKeyset 各排序的 (排序键..., id) 一一对应，游标翻页按索引顺序定位
+        @Index(name = "idx_goods_category_price", columnList = "categoryCode, priceFen, id"),
+        @Index(name = "idx_goods_category_sales", columnList = "categoryCode, salesCount, id"),
+        @Index(name = "idx_goods_category_rating", columnList = "categoryCode, rating, id"),
+        @Index(name = "idx_goods_category_created", columnList = "categoryCode, createdAt, id"),
+        @Index(name = "idx_goods_category_smart",
+                columnList = "categoryCode, recommend, salesCount, rating, createdAt, id")
+})
 public class Goods {
 
     @Id
@@ -41,26 +54,30 @@ public class Goods {
     @Column
     private String price;
 
+    /** 价格（分），与 price 同步，用于数值排序和区间筛选；无法解析的价格记为 0 */
+    @Column(nullable = false)
+    private Long priceFen;
+
     @Column(length = 1024)
     private String h5url;
 
-    @Column
+    @Column(nullable = false)
     private Boolean recommend;
 
     /** ACTIVE=已上架  INACTIVE=已下架 */
     @Column(nullable = false)
     private String status = "ACTIVE";
 
-    @Column
+    @Column(nullable = false)
     private Integer salesCount;
 
-    @Column
+    @Column(nullable = false)
     private Double rating;
 
     @Column
     private Integer viewCount;
 
-    @Column
+    @Column(nullable = false)
     private Instant createdAt;
 
     // 店铺相关字段（非持久化，用于API返回）
@@ -76,6 +93,27 @@ public class Goods {
     @Column
     private String shipping;
 
+    // 排序键不允许为 NULL，游标翻页的条件才能是单纯的大小比较
+    @PrePersist
+    @PreUpdate
+    void fillSortKeys() {
+        if (priceFen == null) {
+            priceFen = 0L;
+        }
+        if (recommend == null) {
+            recommend = Boolean.FALSE;
+        }
+        if (salesCount == null) {
+            salesCount = 0;
+        }
+        if (rating == null) {
+            rating = 0.0;
+        }
+        if (createdAt == null) {
+            createdAt = Instant.EPOCH;
+        }
+    }
+
     public Long getId() {
         return id;
     }
@@ -146,6 +184,11 @@ public class Goods {
 
     public void setPrice(String price) {
         this.price = price;
+        this.priceFen = GoodsPrice.toFen(price);
+    }
+
+    public Long getPriceFen() {
+        return priceFen;
     }
 
     public String getH5url() {
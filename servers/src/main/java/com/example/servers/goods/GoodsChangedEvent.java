@@ -0,0 +1,17 @@
+package com.example.servers.goods;
+
+/**
+ * 商品新增 / 修改 / 上下架后发布，供内存索引等组件增量刷新。
+ */
+public class GoodsChangedEvent {
+
+    private final Goods goods;
+
+    public GoodsChangedEvent(Goods goods) {
+        this.goods = goods;
+    }
+
+    public Goods getGoods() {
+        return goods;
+    }
+}
@@ -1,13 +1,16 @@
 package com.example.servers.goods;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import com.example.servers.BaseResponse;
+import jakarta.persistence.criteria.Predicate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
@@ -15,10 +18,23 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 public class GoodsController {
 
+    private static final String SCOPE_HOME = "H";
+    private static final String SCOPE_CATEGORY = "C";
+    private static final String SCOPE_ALL = "A";
+
     private final GoodsRepository repository;
+    private final GoodsSearchIndex searchIndex;
+    private final GoodsRankingSnapshot rankingSnapshot;
+    private final GoodsTrending trending;
 
-    public GoodsController(GoodsRepository repository) {
+    public GoodsController(GoodsRepository repository,
+                           GoodsSearchIndex searchIndex,
+                           GoodsRankingSnapshot rankingSnapshot,
+                           GoodsTrending trending) {
         this.repository = repository;
+        this.searchIndex = searchIndex;
+        this.rankingSnapshot = rankingSnapshot;
+        this.trending = trending;
     }
 
     @PostMapping("/common/queryGoodsListByPage")
@@ -28,18 +44,48 @@ public class GoodsController {
         int pageSize = body.get("pageSize") instanceof Number ? ((Number) body.get("pageSize")).intValue() : 15;
         String strategy = body.get("strategy") == null ? null : body.get("strategy").toString();
         String sort = body.get("sort") == null ? null : body.get("sort").toString();
+        Long minPrice = parsePrice(body.get("minPrice"));
+        Long maxPrice = parsePrice(body.get("maxPrice"));
+        if (invalidPrice(body.get("minPrice"), minPrice) || invalidPrice(body.get("maxPrice"), maxPrice)) {
+            return new BaseResponse<>("400", "价格参数无效", null);
+        }
+        boolean priceFilter = minPrice != null || maxPrice != null;
+        long min = minPrice == null ? 0L : minPrice;
+        long max = maxPrice == null ? Long.MAX_VALUE : maxPrice;
+        boolean home = code == null || code.isEmpty();
+        if (!priceFilter && (home || GoodsSort.resolve(strategy, sort) == GoodsSort.SMART)) {
+            // 首页与默认 smart 排序直接切片预计算的排名快照
+            BaseResponse<Map<String, Object>> ranked = queryGoodsListFromRanking(code, body, pageNo, Math.max(pageSize, 1));
+            if (ranked != null) {
+                return ranked;
+            }
+        }
+        if (body.containsKey("cursor")) {
+            // 游标模式：传入上一页返回的 nextCursor，第一页传空字符串
+            Object cursor = body.get("cursor");
+            boolean withCount = Boolean.TRUE.equals(body.get("withCount"));
+            return queryGoodsListByCursor(code, GoodsSort.resolve(strategy, sort), minPrice, maxPrice,
+                    cursor == null ? null : cursor.toString(), Math.max(pageSize, 1), withCount);
+        }
         PageRequest pageable = PageRequest.of(Math.max(pageNo - 1, 0), pageSize, resolveSort(strategy, sort));
         Page<Goods> page;
         
         if (code == null || code.isEmpty()) {
             // 首页：type=2 的商品排在最前面
-            page = repository.findAllWithType2First(PageRequest.of(Math.max(pageNo - 1, 0), pageSize));
+            PageRequest unsorted = PageRequest.of(Math.max(pageNo - 1, 0), pageSize);
+            page = priceFilter
+                    ? repository.findByPriceRangeWithType2First(min, max, unsorted)
+                    : repository.findAllWithType2First(unsorted);
         } else {
             // 分类页：过滤掉 type=2 的推广商品
-            page = repository.findByCategoryCodeAndTypeNot(code, "2", pageable);
+            page = priceFilter
+                    ? repository.findByCategoryCodeAndTypeNotAndPriceFenBetween(code, "2", min, max, pageable)
+                    : repository.findByCategoryCodeAndTypeNot(code, "2", pageable);
             if (page.getTotalElements() == 0) {
                 // 如果该分类没有商品，显示其他分类的普通商品（仍过滤 type=2）
-                page = repository.findByTypeNot("2", pageable);
+                page = priceFilter
+                        ? repository.findByTypeNotAndPriceFenBetween("2", min, max, pageable)
+                        : repository.findByTypeNot("2", pageable);
             }
         }
         
@@ -51,42 +97,130 @@ public class GoodsController {
         return BaseResponse.success(data);
     }
 
-    private Sort resolveSort(String strategy, String sort) {
-        // 如果有sort参数，优先使用sort参数
-        if (sort != null && !sort.isEmpty()) {
-            switch (sort) {
-                case "priceAsc":
-                    return Sort.by(Sort.Order.asc("price"));
-                case "priceDesc":
-                    return Sort.by(Sort.Order.desc("price"));
-                case "salesDesc":
-                    return Sort.by(Sort.Order.desc("salesCount"));
-                case "ratingDesc":
-                    return Sort.by(Sort.Order.desc("rating"));
-                case "newArrival":
-                    return Sort.by(Sort.Order.desc("createdAt"));
-                default:
-                    return Sort.by(Sort.Order.desc("salesCount"));
+    // 快照未就绪或游标不是快照游标时返回 null
+    private BaseResponse<Map<String, Object>> queryGoodsListFromRanking(String code, Map<String, Object> body,
+                                                                        int pageNo, int pageSize) {
+        boolean cursorMode = body.containsKey("cursor");
+        GoodsRankingSnapshot.Page page;
+        if (cursorMode) {
+            Object cursor = body.get("cursor");
+            String token = cursor == null || cursor.toString().isEmpty() ? null : cursor.toString();
+            if (token != null && !GoodsRankingSnapshot.isCursor(token)) {
+                return null;
+            }
+            try {
+                page = rankingSnapshot.sliceAfter(code, token, pageSize);
+            } catch (IllegalArgumentException ex) {
+                return new BaseResponse<>("400", "cursor无效", null);
+            }
+        } else {
+            page = rankingSnapshot.slice(code, Math.max(pageNo - 1, 0) * pageSize, pageSize);
+        }
+        if (page == null) {
+            return null;
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("goodsList", findAllInOrder(page.ids()));
+        if (cursorMode) {
+            data.put("hasMore", page.nextCursor() != null);
+            data.put("nextCursor", page.nextCursor());
+            if (!Boolean.TRUE.equals(body.get("withCount"))) {
+                return BaseResponse.success(data);
             }
         }
-        
-        // 否则使用strategy策略排序
-        if (strategy == null || strategy.isEmpty() || "smart".equals(strategy)) {
-            return Sort.by(Sort.Order.desc("recommend"),
-                    Sort.Order.desc("salesCount"),
-                    Sort.Order.desc("rating"),
-                    Sort.Order.desc("createdAt"));
-        }
-        switch (strategy) {
-            case "topSales":
-                return Sort.by(Sort.Order.desc("salesCount"));
-            case "topRated":
-                return Sort.by(Sort.Order.desc("rating"));
-            case "newArrival":
-                return Sort.by(Sort.Order.desc("createdAt"));
-            default:
-                return Sort.by(Sort.Order.desc("salesCount"));
+        data.put("totalCount", page.total());
+        data.put("totalPageCount", (page.total() + pageSize - 1) / pageSize);
+        return BaseResponse.success(data);
+    }
+
+    private BaseResponse<Map<String, Object>> queryGoodsListByCursor(String code, GoodsSort sort,
+                                                                     Long minPrice, Long maxPrice,
+                                                                     String cursor, int pageSize,
+                                                                     boolean withCount) {
+        boolean home = code == null || code.isEmpty();
+        GoodsKeyset keyset = home ? GoodsKeyset.HOME : GoodsKeyset.of(sort);
+        GoodsKeyset.Cursor after = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                after = keyset.decode(cursor);
+            } catch (IllegalArgumentException ex) {
+                return new BaseResponse<>("400", "cursor无效", null);
+            }
+        }
+
+        // scope：HOME 首页，CATEGORY 分类页，ALL 分类无商品时回退到全部普通商品
+        String scope;
+        if (after != null) {
+            scope = after.scope();
+        } else if (home) {
+            scope = SCOPE_HOME;
+        } else {
+            scope = repository.exists(goodsFilter(code, minPrice, maxPrice)) ? SCOPE_CATEGORY : SCOPE_ALL;
+        }
+        Specification<Goods> filter = SCOPE_HOME.equals(scope)
+                ? priceFilter(minPrice, maxPrice)
+                : goodsFilter(SCOPE_CATEGORY.equals(scope) ? code : null, minPrice, maxPrice);
+
+        // 多取一条用于判断是否还有下一页
+        List<Goods> rows = repository.findBy(keyset.where(filter, after), q -> q.limit(pageSize + 1).all());
+        boolean hasMore = rows.size() > pageSize;
+        List<Goods> list = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("goodsList", list);
+        data.put("hasMore", hasMore);
+        data.put("nextCursor", hasMore ? keyset.encode(scope, list.get(list.size() - 1)) : null);
+        if (withCount) {
+            long total = repository.count(filter);
+            data.put("totalCount", total);
+            data.put("totalPageCount", (total + pageSize - 1) / pageSize);
         }
+        return BaseResponse.success(data);
+    }
+
+    // 分类页 / 回退页过滤条件：排除 type=2，可选分类与价格区间
+    private Specification<Goods> goodsFilter(String categoryCode, Long minPrice, Long maxPrice) {
+        Specification<Goods> price = priceFilter(minPrice, maxPrice);
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (categoryCode != null) {
+                predicates.add(cb.equal(root.get("categoryCode"), categoryCode));
+            }
+            predicates.add(cb.notEqual(root.get("type"), "2"));
+            predicates.add(price.toPredicate(root, query, cb));
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private Specification<Goods> priceFilter(Long minPrice, Long maxPrice) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (minPrice != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.<Long>get("priceFen"), minPrice));
+            }
+            if (maxPrice != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.<Long>get("priceFen"), maxPrice));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private Sort resolveSort(String strategy, String sort) {
+        return GoodsSort.resolve(strategy, sort).toSort();
+    }
+
+    // minPrice / maxPrice 以元为单位传入，换算成分；未传或空字符串为 null
+    private Long parsePrice(Object value) {
+        return value == null ? null : GoodsPrice.toFen(value.toString());
+    }
+
+    // 传了非空值却无法解析，或为负数
+    private static boolean invalidPrice(Object raw, Long fen) {
+        if (raw == null || raw.toString().trim().isEmpty()) {
+            return false;
+        }
+        return fen == null || fen < 0;
     }
 
     @PostMapping("/common/searchGoods")
@@ -95,20 +229,76 @@ public class GoodsController {
         int pageNo = body.get("pageNo") instanceof Number ? ((Number) body.get("pageNo")).intValue() : 1;
         int pageSize = body.get("pageSize") instanceof Number ? ((Number) body.get("pageSize")).intValue() : 15;
         String sort = body.get("sort") == null ? null : body.get("sort").toString();
+        Long minPrice = parsePrice(body.get("minPrice"));
+        Long maxPrice = parsePrice(body.get("maxPrice"));
+        if (invalidPrice(body.get("minPrice"), minPrice) || invalidPrice(body.get("maxPrice"), maxPrice)) {
+            return new BaseResponse<>("400", "价格参数无效", null);
+        }
         
         if (keyword == null || keyword.trim().isEmpty()) {
             return new BaseResponse<>("400", "搜索词不能为空", null);
         }
         
-        PageRequest pageable = PageRequest.of(Math.max(pageNo - 1, 0), pageSize, resolveSort(null, sort));
-        // 搜索结果排除 type=2 的推广商品
-        Page<Goods> page = repository.searchByKeywordExcludeType2(keyword.trim(), pageable);
-        
+        pageSize = Math.max(pageSize, 1);
+        if (!searchIndex.isReady()) {
+            // 索引尚未构建完成时回退到数据库查询
+            PageRequest pageable = PageRequest.of(Math.max(pageNo - 1, 0), pageSize, resolveSort(null, sort));
+            // 搜索结果排除 type=2 的推广商品
+            Page<Goods> page = minPrice == null && maxPrice == null
+                    ? repository.searchByKeywordExcludeType2(keyword.trim(), pageable)
+                    : repository.searchByKeywordExcludeType2InPriceRange(keyword.trim(),
+                            minPrice == null ? 0L : minPrice, maxPrice == null ? Long.MAX_VALUE : maxPrice, pageable);
+
+            Map<String, Object> data = new HashMap<>();
+            List<Goods> list = page.getContent();
+            data.put("goodsList", list);
+            data.put("totalCount", page.getTotalElements());
+            data.put("totalPageCount", page.getTotalPages());
+            return BaseResponse.success(data);
+        }
+
+        // 倒排索引命中后只按 id 回表取当前页
+        int offset = Math.max(pageNo - 1, 0) * pageSize;
+        GoodsSearchIndex.Hits hits = searchIndex.search(keyword, GoodsSort.resolve(null, sort),
+                minPrice, maxPrice, offset, pageSize);
+
         Map<String, Object> data = new HashMap<>();
-        List<Goods> list = page.getContent();
-        data.put("goodsList", list);
-        data.put("totalCount", page.getTotalElements());
-        data.put("totalPageCount", page.getTotalPages());
+        data.put("goodsList", findAllInOrder(hits.ids()));
+        data.put("totalCount", hits.total());
+        data.put("totalPageCount", (hits.total() + pageSize - 1) / pageSize);
         return BaseResponse.success(data);
     }
+
+    /**
+     * 最近一段时间内的热门商品，code 为空表示全站，否则为该分类下的热门商品。
+     */
+    @PostMapping("/common/queryTrendingGoods")
+    public BaseResponse<Map<String, Object>> queryTrendingGoods(@RequestBody(required = false) Map<String, Object> body) {
+        String code = body == null || body.get("code") == null ? null : body.get("code").toString();
+        int pageSize = body != null && body.get("pageSize") instanceof Number ? ((Number) body.get("pageSize")).intValue() : 10;
+        pageSize = Math.min(Math.max(pageSize, 1), trending.maxLimit());
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("goodsList", findAllInOrder(trending.top(code, pageSize)));
+        data.put("windowMinutes", trending.windowMinutes());
+        return BaseResponse.success(data);
+    }
+
+    private List<Goods> findAllInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Goods> byId = new HashMap<>();
+        for (Goods g : repository.findAllById(ids)) {
+            byId.put(g.getId(), g);
+        }
+        List<Goods> list = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Goods g = byId.get(id);
+            if (g != null) {
+                list.add(g);
+            }
+        }
+        return list;
+    }
 }
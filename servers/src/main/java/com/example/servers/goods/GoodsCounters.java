@@ -0,0 +1,134 @@
+package com.example.servers.goods;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 商品浏览量 / 销量的内存计数器。
+ * 每个商品一组 LongAdder 累加本进程内的总增量，定时把尚未落库的部分
+ * 用一条批量 UPDATE view_count = view_count + ? 写回，避免读-改-写丢失更新和热点行锁。
+ * 读取时用“库中的值 + 读库之后新增的量”得到最新计数。
+ */
+@Component
+public class GoodsCounters {
+
+    private static final String FLUSH_SQL = "UPDATE goods SET view_count = COALESCE(view_count, 0) + ?, " +
+            "sales_count = COALESCE(sales_count, 0) + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<Long, Cell> cells = new ConcurrentHashMap<>();
+
+    public GoodsCounters(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public void increment(Long goodsId, long views, long sales) {
+        if (goodsId == null || (views == 0 && sales == 0)) {
+            return;
+        }
+        Cell cell = cells.computeIfAbsent(goodsId, k -> new Cell());
+        if (views != 0) {
+            cell.views.add(views);
+        }
+        if (sales != 0) {
+            cell.sales.add(sales);
+        }
+    }
+
+    /** 读库之前取一个标记，之后用 since(mark) 得到读库以来的新增量 */
+    public Mark mark(Long goodsId) {
+        Cell cell = cells.get(goodsId);
+        return cell == null ? Mark.ZERO : new Mark(cell.flushedViews, cell.flushedSales);
+    }
+
+    public Mark since(Long goodsId, Mark mark) {
+        Cell cell = cells.get(goodsId);
+        if (cell == null) {
+            return Mark.ZERO;
+        }
+        return new Mark(cell.views.sum() - mark.views(), cell.sales.sum() - mark.sales());
+    }
+
+    /** 尚未落库的销量增量 */
+    public long pendingSales(Long goodsId) {
+        Cell cell = cells.get(goodsId);
+        return cell == null ? 0 : cell.sales.sum() - cell.flushedSales;
+    }
+
+    @Scheduled(fixedDelayString = "${goods.counters.flush-interval-ms:2000}")
+    @PreDestroy
+    public synchronized void flush() {
+        List<Long> ids = new ArrayList<>();
+        List<Object[]> args = new ArrayList<>();
+        List<long[]> totals = new ArrayList<>();
+        cells.forEach((id, cell) -> {
+            long views = cell.views.sum();
+            long sales = cell.sales.sum();
+            if (views != cell.flushedViews || sales != cell.flushedSales) {
+                ids.add(id);
+                args.add(new Object[]{views - cell.flushedViews, sales - cell.flushedSales, id});
+                totals.add(new long[]{views, sales});
+            }
+        });
+        if (ids.isEmpty()) {
+            return;
+        }
+        int[] updated = jdbcTemplate.batchUpdate(FLUSH_SQL, args);
+        Map<Long, Long> salesChanged = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            Cell cell = cells.get(id);
+            if (updated[i] == 0) {
+                // 商品不存在，丢弃计数
+                cells.remove(id);
+                continue;
+            }
+            if (totals.get(i)[1] != cell.flushedSales) {
+                salesChanged.put(id, totals.get(i)[1] - cell.flushedSales);
+            }
+            cell.flushedViews = totals.get(i)[0];
+            cell.flushedSales = totals.get(i)[1];
+        }
+        publishStats(salesChanged);
+    }
+
+    // 销量变化后通知内存排行（同类推荐等）
+    private void publishStats(Map<Long, Long> salesDeltas) {
+        if (salesDeltas.isEmpty()) {
+            return;
+        }
+        String in = String.join(", ", Collections.nCopies(salesDeltas.size(), "?"));
+        RowCallbackHandler publish = rs -> eventPublisher.publishEvent(new GoodsStatsChangedEvent(rs.getLong(1),
+                rs.getString(2), rs.getObject(3, Integer.class), rs.getObject(4, Double.class),
+                salesDeltas.get(rs.getLong(1))));
+        jdbcTemplate.query("SELECT id, category_code, sales_count, rating FROM goods WHERE id IN (" + in + ")",
+                publish, salesDeltas.keySet().toArray());
+    }
+
+    public record Mark(long views, long sales) {
+        public static final Mark ZERO = new Mark(0, 0);
+    }
+
+    private static final class Cell {
+        // 本进程内累计的总增量
+        final LongAdder views = new LongAdder();
+        final LongAdder sales = new LongAdder();
+        // 已写回数据库的部分，只在 flush 中修改
+        volatile long flushedViews;
+        volatile long flushedSales;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.servers.goods;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * 商品列表的游标（keyset）分页：按排序键 + id 从上一页最后一行继续查找，
+ * 不再使用 OFFSET，深翻页与第一页代价相同。
+ * 游标是对最后一行排序键的 Base64 编码，对客户端不透明。
+ */
+final class GoodsKeyset {
+
+    // 首页：type=2 的推广商品在前，其余按 id 倒序
+    static final GoodsKeyset HOME = new GoodsKeyset("HOME", List.of(Key.PROMO_FIRST, Key.ID));
+
+    private static final String SEPARATOR = "|";
+
+    private final String name;
+    private final List<Key> keys;
+
+    private GoodsKeyset(String name, List<Key> keys) {
+        this.name = name;
+        this.keys = keys;
+    }
+
+    static GoodsKeyset of(GoodsSort sort) {
+        switch (sort) {
+            case PRICE_ASC:
+                return new GoodsKeyset(sort.name(), List.of(Key.PRICE_ASC, Key.ID));
+            case PRICE_DESC:
+                return new GoodsKeyset(sort.name(), List.of(Key.PRICE_DESC, Key.ID));
+            case RATING_DESC:
+                return new GoodsKeyset(sort.name(), List.of(Key.RATING, Key.ID));
+            case NEW_ARRIVAL:
+                return new GoodsKeyset(sort.name(), List.of(Key.CREATED_AT, Key.ID));
+            case SMART:
+                return new GoodsKeyset(sort.name(),
+                        List.of(Key.RECOMMEND, Key.SALES_COUNT, Key.RATING, Key.CREATED_AT, Key.ID));
+            case SALES_DESC:
+            default:
+                return new GoodsKeyset(sort.name(), List.of(Key.SALES_COUNT, Key.ID));
+        }
+    }
+
+    /**
+     * 在 filter 的基础上追加“位于游标之后”的条件，并按排序键排序。
+     * after 为 null 时表示第一页。
+     */
+    Specification<Goods> where(Specification<Goods> filter, Cursor after) {
+        return (root, query, cb) -> {
+            Predicate predicate = filter.toPredicate(root, query, cb);
+            if (after != null) {
+                predicate = cb.and(predicate, after(root, cb, after.values()));
+            }
+            if (query != null) {
+                List<Order> orders = new ArrayList<>(keys.size());
+                for (Key key : keys) {
+                    Expression<?> expr = key.expression(root, cb);
+                    orders.add(key.ascending ? cb.asc(expr) : cb.desc(expr));
+                }
+                query.orderBy(orders);
+            }
+            return predicate;
+        };
+    }
+
+    // (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ...，“>” 按各键的方向解释；排序键均为 NOT NULL（见 Goods.fillSortKeys）
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate after(Root<Goods> root, CriteriaBuilder cb, Object[] values) {
+        List<Predicate> alternatives = new ArrayList<>();
+        List<Predicate> equalPrefix = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            Key key = keys.get(i);
+            Expression expr = key.expression(root, cb);
+            Comparable value = (Comparable) values[i];
+            List<Predicate> branch = new ArrayList<>(equalPrefix);
+            branch.add(key.ascending ? cb.greaterThan(expr, value) : cb.lessThan(expr, value));
+            alternatives.add(cb.and(branch.toArray(new Predicate[0])));
+            equalPrefix.add(cb.equal(expr, value));
+        }
+        return cb.or(alternatives.toArray(new Predicate[0]));
+    }
+
+    String encode(String scope, Goods last) {
+        StringBuilder sb = new StringBuilder(name).append(SEPARATOR).append(scope);
+        for (Key key : keys) {
+            sb.append(SEPARATOR).append(key.extractor.apply(last));
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，排序方式不一致或格式错误（包括任一排序键无法解析）时抛出 IllegalArgumentException。
+     */
+    Cursor decode(String token) {
+        String[] parts;
+        Object[] values = new Object[keys.size()];
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            parts = raw.split("\\|", -1);
+            if (parts.length != keys.size() + 2 || !name.equals(parts[0])) {
+                throw new IllegalArgumentException("cursor does not match sort " + name);
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                values[i] = keys.get(i).parser.apply(parts[i + 2]);
+            }
+        } catch (IllegalArgumentException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            // Instant.parse 抛出的 DateTimeParseException 等
+            throw new IllegalArgumentException("malformed cursor", ex);
+        }
+        return new Cursor(parts[1], values);
+    }
+
+    // Boolean.valueOf 对任意字符串都返回 false，这里只接受 true / false
+    private static Boolean parseBoolean(String s) {
+        if ("true".equals(s) || "false".equals(s)) {
+            return Boolean.valueOf(s);
+        }
+        throw new IllegalArgumentException("not a boolean: " + s);
+    }
+
+    record Cursor(String scope, Object[] values) {
+    }
+
+    private enum Key {
+
+        PROMO_FIRST(null, true, g -> "2".equals(g.getType()) ? 0 : 1, Integer::valueOf),
+        RECOMMEND("recommend", false, Goods::getRecommend, GoodsKeyset::parseBoolean),
+        SALES_COUNT("salesCount", false, Goods::getSalesCount, Integer::valueOf),
+        RATING("rating", false, Goods::getRating, Double::valueOf),
+        CREATED_AT("createdAt", false, Goods::getCreatedAt, Instant::parse),
+        PRICE_ASC("priceFen", true, Goods::getPriceFen, Long::valueOf),
+        PRICE_DESC("priceFen", false, Goods::getPriceFen, Long::valueOf),
+        ID("id", false, Goods::getId, Long::valueOf);
+
+        private final String property;
+        private final boolean ascending;
+        private final Function<Goods, Object> extractor;
+        private final Function<String, Object> parser;
+
+        Key(String property, boolean ascending, Function<Goods, Object> extractor, Function<String, Object> parser) {
+            this.property = property;
+            this.ascending = ascending;
+            this.extractor = extractor;
+            this.parser = parser;
+        }
+
+        Expression<?> expression(Root<Goods> root, CriteriaBuilder cb) {
+            if (property == null) {
+                return cb.<Integer>selectCase().when(cb.equal(root.get("type"), "2"), 0).otherwise(1);
+            }
+            return root.get(property);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.servers.goods;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 商品价格的字符串（元）与整数（分）之间的换算。
+ */
+public final class GoodsPrice {
+
+    private GoodsPrice() {
+    }
+
+    /** 解析 "1999"、"1999.00"、"¥1999" 等格式，无法解析时返回 null */
+    public static Long toFen(String price) {
+        if (price == null) {
+            return null;
+        }
+        String s = price.trim();
+        if (s.startsWith("¥") || s.startsWith("￥")) {
+            s = s.substring(1).trim();
+        }
+        if (s.isEmpty()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(s).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        } catch (NumberFormatException | ArithmeticException ex) {
+            return null;
+        }
+    }
+
+    public static BigDecimal toYuan(Long fen) {
+        return fen == null ? null : BigDecimal.valueOf(fen, 2);
+    }
+}
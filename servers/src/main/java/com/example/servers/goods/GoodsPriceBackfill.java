@@ -0,0 +1,70 @@
+package com.example.servers.goods;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动时修正历史商品的排序字段，先于其他启动任务执行：
+ * 1. 由字符串 price 换算 priceFen。priceFen 为 NULL 的行，以及被建列（NOT NULL 列补 0）
+ *    或旧版补默认值填成 0 的行都重新换算；真实价格为 0 或无法解析的仍记为 0（与 Goods.priceFen 一致）。
+ * 2. 其余排序字段为 NULL 的补默认值。必须在第 1 步之后，否则 priceFen 先被填成 0。
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class GoodsPriceBackfill implements CommandLineRunner {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final GoodsRepository repository;
+
+    public GoodsPriceBackfill(GoodsRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public void run(String... args) {
+        int repriced = backfillPriceFen();
+        if (repriced > 0) {
+            System.out.println("已回填商品 priceFen：" + repriced + " 条");
+        }
+        int filled = repository.fillMissingSortKeys(Instant.EPOCH);
+        if (filled > 0) {
+            System.out.println("已为 " + filled + " 个商品补全排序字段");
+        }
+    }
+
+    int backfillPriceFen() {
+        long lastId = 0L;
+        int updated = 0;
+        while (true) {
+            List<Goods> batch = repository.findPriceFenBackfillCandidates(lastId, PageRequest.ofSize(BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<Goods> changed = new ArrayList<>();
+            for (Goods g : batch) {
+                Long fen = GoodsPrice.toFen(g.getPrice());
+                // 无法解析的价格记为 0，已是 0 的不必重写
+                if (!Objects.equals(g.getPriceFen(), fen == null ? 0L : fen)) {
+                    // 通过 setter 同步 priceFen，NULL 由 Goods.fillSortKeys 记为 0
+                    g.setPrice(g.getPrice());
+                    changed.add(g);
+                }
+            }
+            if (!changed.isEmpty()) {
+                repository.saveAll(changed);
+                updated += changed.size();
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.servers.goods;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 默认 smart 排序与首页排序的预计算快照。
+ * 后台按固定间隔或商品变更时重建，整体替换为新的不可变排名数组，
+ * 列表接口只需按页切片再按 id 回表。
+ * 游标记录上一页最后一项的排序键和 id，翻页时在当前快照中二分定位到它之后，
+ * 两页之间快照重建也不会重复或跳过商品。
+ */
+@Component
+public class GoodsRankingSnapshot {
+
+    private static final int BUILD_BATCH_SIZE = 2000;
+    private static final Entry[] EMPTY = new Entry[0];
+    private static final String CURSOR_PREFIX = "RANK|";
+    private static final String SEPARATOR = "|";
+
+    // 首页：type=2 在前，其余按 id 倒序（与 findAllWithType2First 一致）
+    private static final Comparator<Entry> HOME_ORDER = Comparator.comparingInt((Entry e) -> e.promo() ? 0 : 1)
+            .thenComparing(Comparator.comparingLong(Entry::id).reversed());
+    // smart：与 GoodsSort.SMART / GoodsSearchIndex.comparator 一致
+    private static final Comparator<Entry> SMART_ORDER = Comparator.comparing(Entry::recommend).reversed()
+            .thenComparing(Comparator.comparingInt(Entry::salesCount).reversed())
+            .thenComparing(Comparator.comparingDouble(Entry::rating).reversed())
+            .thenComparing(Comparator.comparingLong(Entry::createdAt).reversed())
+            .thenComparing(Comparator.comparingLong(Entry::id).reversed());
+
+    private final GoodsRepository repository;
+    private final GoodsCounters counters;
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "goods-ranking-rebuild");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean rebuildPending = new AtomicBoolean(false);
+
+    private volatile Ranking ranking;
+
+    public GoodsRankingSnapshot(GoodsRepository repository, GoodsCounters counters) {
+        this.repository = repository;
+        this.counters = counters;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${goods.ranking.refresh-interval-ms:60000}",
+            fixedDelayString = "${goods.ranking.refresh-interval-ms:60000}")
+    public void scheduledRebuild() {
+        requestRebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGoodsChanged(GoodsChangedEvent event) {
+        requestRebuild();
+    }
+
+    // 合并并发的重建请求，同一时间最多排队一次
+    public void requestRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                rebuildPending.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    public void rebuild() {
+        List<Entry> home = new ArrayList<>();
+        // 分类页与回退页：排除 type=2
+        List<Entry> smart = new ArrayList<>();
+        Map<String, List<Entry>> grouped = new HashMap<>();
+        long lastId = 0L;
+        while (true) {
+            List<Object[]> rows = repository.findRankingRowsAfter(lastId, PageRequest.ofSize(BUILD_BATCH_SIZE));
+            if (rows.isEmpty()) {
+                break;
+            }
+            for (Object[] row : rows) {
+                Long id = (Long) row[0];
+                String categoryCode = (String) row[1];
+                String type = (String) row[2];
+                Instant createdAt = (Instant) row[6];
+                Entry e = new Entry(id, "2".equals(type), Boolean.TRUE.equals(row[3]),
+                        salesCount(id, (Integer) row[4]), row[5] == null ? 0.0 : (Double) row[5],
+                        createdAt == null ? 0L : createdAt.toEpochMilli());
+                home.add(e);
+                if (type != null && !e.promo()) {
+                    smart.add(e);
+                    if (categoryCode != null) {
+                        grouped.computeIfAbsent(categoryCode, k -> new ArrayList<>()).add(e);
+                    }
+                }
+            }
+            lastId = (Long) rows.get(rows.size() - 1)[0];
+        }
+
+        Map<String, Entry[]> byCategory = new HashMap<>();
+        grouped.forEach((code, list) -> byCategory.put(code, sorted(list, SMART_ORDER)));
+        ranking = new Ranking(sorted(home, HOME_ORDER), sorted(smart, SMART_ORDER), Map.copyOf(byCategory));
+    }
+
+    /**
+     * 按页码切片。code 为空表示首页；分类无商品时回退到全部普通商品。
+     * 快照尚未构建时返回 null，由调用方回退到数据库查询。
+     */
+    public Page slice(String code, int offset, int limit) {
+        Ranking current = ranking;
+        if (current == null) {
+            return null;
+        }
+        return page(current.entries(code), Math.max(offset, 0), limit);
+    }
+
+    /**
+     * 从游标之后切片，cursor 为 null 表示第一页；快照尚未构建时返回 null。
+     * 游标不是合法的快照游标时抛出 IllegalArgumentException。
+     */
+    public Page sliceAfter(String code, String cursor, int limit) {
+        Entry after = cursor == null ? null : decode(cursor);
+        Ranking current = ranking;
+        if (current == null) {
+            return null;
+        }
+        Entry[] entries = current.entries(code);
+        int from = 0;
+        if (after != null) {
+            // 上一页最后一项在当前快照中的位置，或按排序键应插入的位置
+            int found = Arrays.binarySearch(entries, after, current.order(code));
+            from = found >= 0 ? found + 1 : -found - 1;
+        }
+        return page(entries, from, limit);
+    }
+
+    /** 是否为快照模式返回的游标（不校验内容） */
+    public static boolean isCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).startsWith(CURSOR_PREFIX);
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    private static Page page(Entry[] entries, int from, int limit) {
+        List<Long> ids = new ArrayList<>(Math.max(Math.min(limit, entries.length - from), 0));
+        for (int i = from; i < entries.length && ids.size() < limit; i++) {
+            ids.add(entries[i].id());
+        }
+        int end = from + ids.size();
+        String nextCursor = !ids.isEmpty() && end < entries.length ? encode(entries[end - 1]) : null;
+        return new Page(ids, entries.length, nextCursor);
+    }
+
+    // RANK|promo|recommend|salesCount|rating|createdAt|id，覆盖首页与 smart 两种排序的全部排序键
+    private static String encode(Entry e) {
+        String raw = CURSOR_PREFIX + String.join(SEPARATOR, e.promo() ? "1" : "0", e.recommend() ? "1" : "0",
+                String.valueOf(e.salesCount()), String.valueOf(e.rating()), String.valueOf(e.createdAt()),
+                String.valueOf(e.id()));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Entry decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(CURSOR_PREFIX)) {
+                throw new IllegalArgumentException("not a ranking cursor");
+            }
+            String[] parts = raw.substring(CURSOR_PREFIX.length()).split("\\|", -1);
+            if (parts.length != 6) {
+                throw new IllegalArgumentException("malformed ranking cursor");
+            }
+            return new Entry(Long.parseLong(parts[5]), "1".equals(parts[0]), "1".equals(parts[1]),
+                    Integer.parseInt(parts[2]), Double.parseDouble(parts[3]), Long.parseLong(parts[4]));
+        } catch (IllegalArgumentException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("malformed ranking cursor", ex);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    // 库中销量 + 尚未落库的增量
+    private int salesCount(Long id, Integer stored) {
+        return (int) ((stored == null ? 0 : stored) + counters.pendingSales(id));
+    }
+
+    private static Entry[] sorted(List<Entry> list, Comparator<Entry> order) {
+        Entry[] entries = list.toArray(new Entry[0]);
+        Arrays.sort(entries, order);
+        return entries;
+    }
+
+    /** nextCursor 为 null 表示没有下一页 */
+    public record Page(List<Long> ids, long total, String nextCursor) {
+    }
+
+    // 参与排名的字段，createdAt 为毫秒
+    private record Entry(long id, boolean promo, boolean recommend, int salesCount, double rating, long createdAt) {
+    }
+
+    private record Ranking(Entry[] home, Entry[] all, Map<String, Entry[]> byCategory) {
+
+        private static boolean isHome(String code) {
+            return code == null || code.isEmpty();
+        }
+
+        Entry[] entries(String code) {
+            if (isHome(code)) {
+                return home;
+            }
+            Entry[] entries = byCategory.getOrDefault(code, EMPTY);
+            return entries.length == 0 ? all : entries;
+        }
+
+        Comparator<Entry> order(String code) {
+            return isHome(code) ? HOME_ORDER : SMART_ORDER;
+        }
+    }
+}
@@ -3,27 +3,60 @@ package com.example.servers.goods;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.List;
 
-public interface GoodsRepository extends JpaRepository<Goods, Long> {
+public interface GoodsRepository extends JpaRepository<Goods, Long>, JpaSpecificationExecutor<Goods> {
 
     // 首页：type=2 推广商品排在最前
     @Query("SELECT g FROM Goods g ORDER BY CASE WHEN g.type = '2' THEN 0 ELSE 1 END, g.id DESC")
     Page<Goods> findAllWithType2First(Pageable pageable);
 
+    // 首页 + 价格区间（分）
+    @Query("SELECT g FROM Goods g WHERE g.priceFen BETWEEN :minPrice AND :maxPrice " +
+            "ORDER BY CASE WHEN g.type = '2' THEN 0 ELSE 1 END, g.id DESC")
+    Page<Goods> findByPriceRangeWithType2First(@Param("minPrice") Long minPrice,
+                                               @Param("maxPrice") Long maxPrice,
+                                               Pageable pageable);
+
     Page<Goods> findByCategoryCode(String categoryCode, Pageable pageable);
 
+    // 同类推荐：按销量、评分排序，走 categoryCode 前缀索引
+    List<Goods> findByCategoryCodeOrderBySalesCountDescRatingDescIdDesc(String categoryCode, Pageable pageable);
+
     // 分类页面：排除 type=2 的推广商品
     Page<Goods> findByCategoryCodeAndTypeNot(String categoryCode, String excludeType, Pageable pageable);
     
     // 排除 type=2 的所有商品
     Page<Goods> findByTypeNot(String excludeType, Pageable pageable);
 
+    // 价格区间筛选，走 (categoryCode, type, priceFen) 索引
+    Page<Goods> findByCategoryCodeAndTypeNotAndPriceFenBetween(String categoryCode, String excludeType,
+                                                               Long minPrice, Long maxPrice, Pageable pageable);
+
+    Page<Goods> findByTypeNotAndPriceFenBetween(String excludeType, Long minPrice, Long maxPrice, Pageable pageable);
+
+    // 排名快照：只取排序相关字段，按 id 分批扫描
+    @Query("SELECT g.id, g.categoryCode, g.type, g.recommend, g.salesCount, g.rating, g.createdAt " +
+            "FROM Goods g WHERE g.id > :id ORDER BY g.id")
+    List<Object[]> findRankingRowsAfter(@Param("id") Long id, Pageable pageable);
+
+    // 回填 priceFen：尚未换算（NULL）或被建列 / 补默认值填成 0 的商品，由 GoodsPriceBackfill 按 price 重新换算
+    @Query("SELECT g FROM Goods g WHERE g.id > :id AND g.price IS NOT NULL " +
+            "AND (g.priceFen IS NULL OR g.priceFen = 0) ORDER BY g.id")
+    List<Goods> findPriceFenBackfillCandidates(@Param("id") Long id, Pageable pageable);
+
     Page<Goods> findByRecommendTrue(Pageable pageable);
 
+    // 按 id 分批全量扫描（用于构建内存索引），不做 COUNT
+    List<Goods> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
     @Query("SELECT g FROM Goods g WHERE " +
             "LOWER(COALESCE(g.description, '')) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
             "LOWER(COALESCE(g.tag, '')) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
@@ -41,6 +74,18 @@ public interface GoodsRepository extends JpaRepository<Goods, Long> {
             "LOWER(COALESCE(g.categoryCode, '')) LIKE LOWER(CONCAT('%', :keyword, '%')))")
     Page<Goods> searchByKeywordExcludeType2(@Param("keyword") String keyword, Pageable pageable);
 
+    // 搜索 + 价格区间（分），索引未就绪时的回退查询
+    @Query("SELECT g FROM Goods g WHERE g.type != '2' AND g.priceFen BETWEEN :minPrice AND :maxPrice AND (" +
+            "LOWER(COALESCE(g.description, '')) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+            "LOWER(COALESCE(g.tag, '')) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+            "LOWER(COALESCE(g.des1, '')) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+            "LOWER(COALESCE(g.des2, '')) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+            "LOWER(COALESCE(g.categoryCode, '')) LIKE LOWER(CONCAT('%', :keyword, '%')))")
+    Page<Goods> searchByKeywordExcludeType2InPriceRange(@Param("keyword") String keyword,
+                                                         @Param("minPrice") Long minPrice,
+                                                         @Param("maxPrice") Long maxPrice,
+                                                         Pageable pageable);
+
     // 管理端：按状态+关键字搜索
     @Query("SELECT g FROM Goods g WHERE " +
             "(:status IS NULL OR g.status = :status) AND " +
@@ -55,4 +100,14 @@ public interface GoodsRepository extends JpaRepository<Goods, Long> {
 
     // 按状态计数
     long countByStatus(String status);
+
+    // 旧数据的排序键补默认值（ddl-auto=update 不会修改已有列的可空性），与 Goods.fillSortKeys 一致；
+    // 须在 priceFen 回填之后执行，见 GoodsPriceBackfill
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Goods g SET g.priceFen = COALESCE(g.priceFen, 0), g.recommend = COALESCE(g.recommend, false), " +
+            "g.salesCount = COALESCE(g.salesCount, 0), g.rating = COALESCE(g.rating, 0.0), " +
+            "g.createdAt = COALESCE(g.createdAt, :epoch) " +
+            "WHERE g.priceFen IS NULL OR g.recommend IS NULL OR g.salesCount IS NULL OR g.rating IS NULL OR g.createdAt IS NULL")
+    int fillMissingSortKeys(@Param("epoch") Instant epoch);
 }
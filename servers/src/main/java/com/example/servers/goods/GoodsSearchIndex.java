@@ -0,0 +1,353 @@
+package com.example.servers.goods;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 商品关键字搜索的内存倒排索引。
+ * 中日韩文字按单字 + 二元组切词，拉丁字母 / 数字按单词内的 1~3 元组切词（可匹配词中任意位置，
+ * 如 "phone" 命中 "iPhone"），覆盖 description、tag、des1、des2、categoryCode 五个字段。
+ * 倒排表只用于缩小候选集，最终以原文包含关键字为准。
+ * 启动完成后全量构建，管理端修改商品时增量更新；构建期间的增量更新在替换前补到新索引上。
+ */
+@Component
+public class GoodsSearchIndex {
+
+    private static final int BUILD_BATCH_SIZE = 1000;
+    private static final int NGRAM = 3;
+    // 字段之间的分隔符，避免关键字跨字段命中
+    private static final char FIELD_SEPARATOR = '\u0001';
+
+    private final GoodsRepository repository;
+
+    private final Object rebuildLock = new Object();
+
+    private volatile Tables tables = new Tables();
+    private volatile boolean ready = false;
+    // 全量构建期间的增量更新，构建完成替换前重放到新索引上；未在构建时为 null，由 this 保护
+    private List<Doc> indexedDuringRebuild;
+
+    public GoodsSearchIndex(GoodsRepository repository) {
+        this.repository = repository;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                indexedDuringRebuild = new ArrayList<>();
+            }
+            try {
+                Tables fresh = new Tables();
+                long lastId = 0L;
+                while (true) {
+                    List<Goods> batch = repository.findByIdGreaterThanOrderByIdAsc(lastId,
+                            PageRequest.ofSize(BUILD_BATCH_SIZE));
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    for (Goods g : batch) {
+                        fresh.put(Doc.of(g));
+                    }
+                    lastId = batch.get(batch.size() - 1).getId();
+                }
+                synchronized (this) {
+                    // 扫描期间提交的修改可能没有被扫描读到
+                    for (Doc doc : indexedDuringRebuild) {
+                        fresh.put(doc);
+                    }
+                    tables = fresh;
+                    ready = true;
+                }
+            } finally {
+                synchronized (this) {
+                    indexedDuringRebuild = null;
+                }
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGoodsChanged(GoodsChangedEvent event) {
+        index(event.getGoods());
+    }
+
+    public synchronized void index(Goods goods) {
+        if (goods == null || goods.getId() == null) {
+            return;
+        }
+        Doc doc = Doc.of(goods);
+        tables.put(doc);
+        if (indexedDuringRebuild != null) {
+            indexedDuringRebuild.add(doc);
+        }
+    }
+
+    /** 索引中商品的分类，未收录时返回 null */
+    public String categoryOf(long goodsId) {
+        Doc doc = tables.docs.get(goodsId);
+        return doc == null ? null : doc.categoryCode();
+    }
+
+    /**
+     * 搜索 type != 2 的商品，可按价格区间（分，含边界，null 表示不限）过滤，
+     * 按 sort 排序后返回 [offset, offset + limit) 区间的商品 id。
+     */
+    public Hits search(String keyword, GoodsSort sort, Long minPrice, Long maxPrice, int offset, int limit) {
+        String needle = keyword == null ? "" : keyword.trim().toLowerCase(Locale.ROOT);
+        Set<String> terms = queryTerms(needle);
+        if (terms.isEmpty()) {
+            return new Hits(List.of(), 0);
+        }
+        Tables current = tables;
+        List<Set<Long>> postingLists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Set<Long> ids = current.postings.get(term);
+            if (ids == null) {
+                return new Hits(List.of(), 0);
+            }
+            postingLists.add(ids);
+        }
+        postingLists.sort(Comparator.comparingInt(Set::size));
+
+        // 只保留前 offset + limit 个结果，避免对全部命中排序
+        int keep = Math.max(offset + limit, 1);
+        Comparator<Doc> order = comparator(sort);
+        PriorityQueue<Doc> top = new PriorityQueue<>(Math.min(keep, 1024), order.reversed());
+        int total = 0;
+        Set<Long> smallest = postingLists.get(0);
+        outer:
+        for (Long id : smallest) {
+            for (int i = 1; i < postingLists.size(); i++) {
+                if (!postingLists.get(i).contains(id)) {
+                    continue outer;
+                }
+            }
+            Doc doc = current.docs.get(id);
+            if (doc == null || doc.type() == null || "2".equals(doc.type()) || !doc.text().contains(needle)) {
+                continue;
+            }
+            if ((minPrice != null || maxPrice != null) && !inRange(doc.priceFen(), minPrice, maxPrice)) {
+                continue;
+            }
+            total++;
+            if (top.size() < keep) {
+                top.add(doc);
+            } else if (order.compare(doc, top.peek()) < 0) {
+                top.poll();
+                top.add(doc);
+            }
+        }
+
+        List<Doc> sorted = new ArrayList<>(top);
+        sorted.sort(order);
+        List<Long> ids = new ArrayList<>();
+        for (int i = offset; i < sorted.size() && ids.size() < limit; i++) {
+            ids.add(sorted.get(i).id());
+        }
+        return new Hits(ids, total);
+    }
+
+    private static boolean inRange(Long priceFen, Long minPrice, Long maxPrice) {
+        if (priceFen == null) {
+            return false;
+        }
+        return (minPrice == null || priceFen >= minPrice) && (maxPrice == null || priceFen <= maxPrice);
+    }
+
+    static Comparator<Doc> comparator(GoodsSort sort) {
+        Comparator<Doc> base;
+        switch (sort) {
+            case PRICE_ASC:
+                base = asc(Doc::priceFen);
+                break;
+            case PRICE_DESC:
+                base = desc(Doc::priceFen);
+                break;
+            case RATING_DESC:
+                base = desc(Doc::rating);
+                break;
+            case NEW_ARRIVAL:
+                base = desc(Doc::createdAt);
+                break;
+            case SMART:
+                base = GoodsSearchIndex.<Boolean>desc(Doc::recommend)
+                        .thenComparing(desc(Doc::salesCount))
+                        .thenComparing(desc(Doc::rating))
+                        .thenComparing(desc(Doc::createdAt));
+                break;
+            case SALES_DESC:
+            default:
+                base = desc(Doc::salesCount);
+                break;
+        }
+        return base.thenComparing(Comparator.comparingLong(Doc::id).reversed());
+    }
+
+    // 与 MySQL 一致：升序时 NULL 在前，降序时 NULL 在后
+    private static <T extends Comparable<? super T>> Comparator<Doc> asc(Function<Doc, T> key) {
+        return Comparator.comparing(key, Comparator.nullsFirst(Comparator.<T>naturalOrder()));
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<Doc> desc(Function<Doc, T> key) {
+        return Comparator.comparing(key, Comparator.nullsFirst(Comparator.<T>naturalOrder())).reversed();
+    }
+
+    // 建索引：中日韩单字 + 二元组，拉丁单词内所有位置的 1~3 元组
+    static Set<String> indexTerms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String run : runs(text)) {
+            if (isCjk(run.codePointAt(0))) {
+                int[] cps = run.codePoints().toArray();
+                for (int i = 0; i < cps.length; i++) {
+                    terms.add(new String(cps, i, 1));
+                    if (i + 1 < cps.length) {
+                        terms.add(new String(cps, i, 2));
+                    }
+                }
+            } else {
+                int[] cps = run.codePoints().toArray();
+                for (int i = 0; i < cps.length; i++) {
+                    for (int len = 1; len <= NGRAM && i + len <= cps.length; len++) {
+                        terms.add(new String(cps, i, len));
+                    }
+                }
+            }
+        }
+        return terms;
+    }
+
+    // 查询：中日韩按二元组（单字时用单字），拉丁单词不超过 3 个字符时整体查询，否则按其所有三元组
+    static Set<String> queryTerms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String run : runs(text)) {
+            if (isCjk(run.codePointAt(0))) {
+                int[] cps = run.codePoints().toArray();
+                if (cps.length == 1) {
+                    terms.add(run);
+                }
+                for (int i = 0; i + 1 < cps.length; i++) {
+                    terms.add(new String(cps, i, 2));
+                }
+            } else {
+                int[] cps = run.codePoints().toArray();
+                if (cps.length <= NGRAM) {
+                    terms.add(run);
+                }
+                for (int i = 0; i + NGRAM <= cps.length; i++) {
+                    terms.add(new String(cps, i, NGRAM));
+                }
+            }
+        }
+        return terms;
+    }
+
+    // 切成连续的中日韩片段或字母数字片段，其余字符视为分隔符
+    private static List<String> runs(String text) {
+        List<String> runs = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return runs;
+        }
+        StringBuilder current = new StringBuilder();
+        Boolean currentCjk = null;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            boolean cjk = isCjk(cp);
+            if (!cjk && !Character.isLetterOrDigit(cp)) {
+                flush(runs, current);
+                currentCjk = null;
+                continue;
+            }
+            if (currentCjk != null && currentCjk != cjk) {
+                flush(runs, current);
+            }
+            current.appendCodePoint(cp);
+            currentCjk = cjk;
+        }
+        flush(runs, current);
+        return runs;
+    }
+
+    private static void flush(List<String> runs, StringBuilder current) {
+        if (current.length() > 0) {
+            runs.add(current.toString());
+            current.setLength(0);
+        }
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    public record Hits(List<Long> ids, long total) {
+    }
+
+    record Doc(long id, String type, String categoryCode, Long priceFen, Boolean recommend,
+               Integer salesCount, Double rating, Instant createdAt, String text) {
+
+        static Doc of(Goods g) {
+            String text = String.join(String.valueOf(FIELD_SEPARATOR),
+                    nullToEmpty(g.getDescription()),
+                    nullToEmpty(g.getTag()),
+                    nullToEmpty(g.getDes1()),
+                    nullToEmpty(g.getDes2()),
+                    nullToEmpty(g.getCategoryCode())).toLowerCase(Locale.ROOT);
+            return new Doc(g.getId(), g.getType(), g.getCategoryCode(), g.getPriceFen(), g.getRecommend(),
+                    g.getSalesCount(), g.getRating(), g.getCreatedAt(), text);
+        }
+
+        private static String nullToEmpty(String s) {
+            return s == null ? "" : s;
+        }
+    }
+
+    private static final class Tables {
+
+        final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+        final Map<Long, Doc> docs = new ConcurrentHashMap<>();
+
+        // 调用方持有 GoodsSearchIndex 的锁
+        void put(Doc doc) {
+            Doc old = docs.put(doc.id(), doc);
+            Set<String> newTerms = indexTerms(doc.text());
+            if (old != null) {
+                for (String term : indexTerms(old.text())) {
+                    if (!newTerms.contains(term)) {
+                        postings.computeIfPresent(term, (k, ids) -> {
+                            ids.remove(doc.id());
+                            return ids.isEmpty() ? null : ids;
+                        });
+                    }
+                }
+            }
+            for (String term : newTerms) {
+                postings.computeIfAbsent(term, k -> Collections.newSetFromMap(new ConcurrentHashMap<>())).add(doc.id());
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.servers.goods;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * 商品列表 / 搜索的排序方式，sort 参数优先于 strategy 参数。
+ */
+public enum GoodsSort {
+
+    PRICE_ASC,
+    PRICE_DESC,
+    SALES_DESC,
+    RATING_DESC,
+    NEW_ARRIVAL,
+    SMART;
+
+    public static GoodsSort resolve(String strategy, String sort) {
+        // 如果有sort参数，优先使用sort参数
+        if (sort != null && !sort.isEmpty()) {
+            switch (sort) {
+                case "priceAsc":
+                    return PRICE_ASC;
+                case "priceDesc":
+                    return PRICE_DESC;
+                case "salesDesc":
+                    return SALES_DESC;
+                case "ratingDesc":
+                    return RATING_DESC;
+                case "newArrival":
+                    return NEW_ARRIVAL;
+                default:
+                    return SALES_DESC;
+            }
+        }
+
+        // 否则使用strategy策略排序
+        if (strategy == null || strategy.isEmpty() || "smart".equals(strategy)) {
+            return SMART;
+        }
+        switch (strategy) {
+            case "topSales":
+                return SALES_DESC;
+            case "topRated":
+                return RATING_DESC;
+            case "newArrival":
+                return NEW_ARRIVAL;
+            default:
+                return SALES_DESC;
+        }
+    }
+
+    public Sort toSort() {
+        switch (this) {
+            case PRICE_ASC:
+                return Sort.by(Sort.Order.asc("priceFen"));
+            case PRICE_DESC:
+                return Sort.by(Sort.Order.desc("priceFen"));
+            case RATING_DESC:
+                return Sort.by(Sort.Order.desc("rating"));
+            case NEW_ARRIVAL:
+                return Sort.by(Sort.Order.desc("createdAt"));
+            case SMART:
+                return Sort.by(Sort.Order.desc("recommend"),
+                        Sort.Order.desc("salesCount"),
+                        Sort.Order.desc("rating"),
+                        Sort.Order.desc("createdAt"));
+            case SALES_DESC:
+            default:
+                return Sort.by(Sort.Order.desc("salesCount"));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.servers.goods;
+
+/**
+ * 销量 / 评分因用户行为变化后发布，携带变化后的值和本次销量增量，供内存排行增量调整。
+ */
+public class GoodsStatsChangedEvent {
+
+    private final Long goodsId;
+    private final String categoryCode;
+    private final Integer salesCount;
+    private final Double rating;
+    private final long salesDelta;
+
+    public GoodsStatsChangedEvent(Long goodsId, String categoryCode, Integer salesCount, Double rating, long salesDelta) {
+        this.goodsId = goodsId;
+        this.categoryCode = categoryCode;
+        this.salesCount = salesCount;
+        this.rating = rating;
+        this.salesDelta = salesDelta;
+    }
+
+    public Long getGoodsId() {
+        return goodsId;
+    }
+
+    public String getCategoryCode() {
+        return categoryCode;
+    }
+
+    public Integer getSalesCount() {
+        return salesCount;
+    }
+
+    public Double getRating() {
+        return rating;
+    }
+
+    public long getSalesDelta() {
+        return salesDelta;
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.servers.goods;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 滑动窗口热门商品。
+ * 窗口按固定时长切成若干片，每片一个 count-min sketch 记录所有商品的近似计数，
+ * 外加全站与各分类的 top-K 小顶堆只保留候选商品；内存只与片数、sketch 宽度和 K 有关，与商品总数无关。
+ * 后台定时把窗口内各片的候选合并、用 sketch 估算窗口计数后排好序，整体替换为不可变结果，
+ * 接口读取只需截取前 k 个 id。
+ */
+@Component
+public class GoodsTrending {
+
+    private static final int SKETCH_DEPTH = 4;
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+    private static final long[] EMPTY = new long[0];
+
+    private final GoodsSearchIndex searchIndex;
+    private final Set<String> eventTypes;
+    private final int topK;
+    private final int maxCategories;
+    private final long sliceMillis;
+    private final int windowMinutes;
+    private final int widthMask;
+    private final Slice[] slices;
+
+    // 当前最新一片的序号（时间戳 / sliceMillis）
+    private long headIndex = Long.MIN_VALUE;
+    private volatile Result result = new Result(EMPTY, Map.of());
+
+    public GoodsTrending(GoodsSearchIndex searchIndex,
+                         @Value("${goods.trending.event-types:click,purchase}") String[] eventTypes,
+                         @Value("${goods.trending.window-minutes:15}") int windowMinutes,
+                         @Value("${goods.trending.slice-seconds:60}") int sliceSeconds,
+                         @Value("${goods.trending.top-k:50}") int topK,
+                         @Value("${goods.trending.sketch-width:2048}") int sketchWidth,
+                         @Value("${goods.trending.max-categories:256}") int maxCategories) {
+        this.searchIndex = searchIndex;
+        this.eventTypes = new HashSet<>(Arrays.asList(eventTypes));
+        this.windowMinutes = windowMinutes;
+        this.sliceMillis = sliceSeconds * 1000L;
+        this.topK = Math.max(topK, 1);
+        this.maxCategories = maxCategories;
+        // 宽度取不小于配置值的 2 的幂，取模改为位与
+        int width = Integer.highestOneBit(Math.max(sketchWidth, 16) - 1) << 1;
+        this.widthMask = width - 1;
+        int sliceCount = (int) Math.max((windowMinutes * 60_000L + sliceMillis - 1) / sliceMillis, 1);
+        this.slices = new Slice[sliceCount];
+        for (int i = 0; i < sliceCount; i++) {
+            slices[i] = new Slice(width);
+        }
+    }
+
+    /** 该事件类型是否计入热度 */
+    public boolean counts(String eventType) {
+        return eventTypes.contains(eventType);
+    }
+
+    /**
+     * 记录 goodsId 在 at 时刻的 count 次事件。早于窗口的事件直接忽略。
+     */
+    public synchronized void record(Long goodsId, long count, Instant at) {
+        if (goodsId == null || count <= 0) {
+            return;
+        }
+        long index = Math.floorDiv(at.toEpochMilli(), sliceMillis);
+        advanceTo(index);
+        if (index <= headIndex - slices.length) {
+            return;
+        }
+        Slice slice = slices[(int) Math.floorMod(index, (long) slices.length)];
+        long estimate = slice.add(goodsId, count, widthMask);
+        slice.global.offer(goodsId, estimate);
+        String category = searchIndex.categoryOf(goodsId);
+        if (category != null) {
+            TopK top = slice.byCategory.get(category);
+            if (top == null && slice.byCategory.size() < maxCategories) {
+                top = new TopK(topK);
+                slice.byCategory.put(category, top);
+            }
+            if (top != null) {
+                top.offer(goodsId, estimate);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${goods.trending.refresh-interval-ms:5000}")
+    public void refresh() {
+        Result fresh;
+        synchronized (this) {
+            advanceTo(Math.floorDiv(System.currentTimeMillis(), sliceMillis));
+            List<Slice> live = liveSlices();
+            Set<Long> globalCandidates = new HashSet<>();
+            Map<String, Set<Long>> categoryCandidates = new HashMap<>();
+            for (Slice slice : live) {
+                slice.global.collectInto(globalCandidates);
+                slice.byCategory.forEach((code, top) ->
+                        top.collectInto(categoryCandidates.computeIfAbsent(code, k -> new HashSet<>())));
+            }
+            Map<Long, Long> windowCounts = new HashMap<>();
+            long[] global = rank(globalCandidates, live, windowCounts);
+            Map<String, long[]> byCategory = new HashMap<>();
+            categoryCandidates.forEach((code, ids) -> byCategory.put(code, rank(ids, live, windowCounts)));
+            fresh = new Result(global, Map.copyOf(byCategory));
+        }
+        result = fresh;
+    }
+
+    /**
+     * 最近窗口内的热门商品 id，按热度倒序，最多 limit 个。code 为空表示全站。
+     */
+    public List<Long> top(String code, int limit) {
+        Result current = result;
+        long[] ids = code == null || code.isEmpty() ? current.global() : current.byCategory().getOrDefault(code, EMPTY);
+        int n = Math.min(Math.max(limit, 0), ids.length);
+        List<Long> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            list.add(ids[i]);
+        }
+        return list;
+    }
+
+    public int windowMinutes() {
+        return windowMinutes;
+    }
+
+    public int maxLimit() {
+        return topK;
+    }
+
+    // 向前推进到 index 所在的片，途经的旧片清零复用
+    private void advanceTo(long index) {
+        if (headIndex == Long.MIN_VALUE) {
+            headIndex = index;
+            slices[(int) Math.floorMod(index, (long) slices.length)].reset(index);
+            return;
+        }
+        if (index <= headIndex) {
+            return;
+        }
+        long from = Math.max(headIndex + 1, index - slices.length + 1);
+        for (long i = from; i <= index; i++) {
+            slices[(int) Math.floorMod(i, (long) slices.length)].reset(i);
+        }
+        headIndex = index;
+    }
+
+    private List<Slice> liveSlices() {
+        List<Slice> live = new ArrayList<>(slices.length);
+        for (Slice slice : slices) {
+            if (slice.index > headIndex - slices.length && slice.index <= headIndex) {
+                live.add(slice);
+            }
+        }
+        return live;
+    }
+
+    // 候选按窗口内各片的 sketch 估算值求和后倒序，取前 topK 个
+    private long[] rank(Set<Long> candidates, List<Slice> live, Map<Long, Long> windowCounts) {
+        List<Long> ids = new ArrayList<>(candidates);
+        for (Long id : ids) {
+            windowCounts.computeIfAbsent(id, k -> {
+                long sum = 0;
+                for (Slice slice : live) {
+                    sum += slice.estimate(k, widthMask);
+                }
+                return sum;
+            });
+        }
+        ids.sort((a, b) -> {
+            int c = Long.compare(windowCounts.get(b), windowCounts.get(a));
+            return c != 0 ? c : Long.compare(b, a);
+        });
+        int n = Math.min(ids.size(), topK);
+        long[] ranked = new long[n];
+        for (int i = 0; i < n; i++) {
+            ranked[i] = ids.get(i);
+        }
+        return ranked;
+    }
+
+    private static int bucket(long goodsId, int row, int widthMask) {
+        // murmur3 fmix64
+        long h = (goodsId + 1) * SEEDS[row];
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int) h & widthMask;
+    }
+
+    private record Result(long[] global, Map<String, long[]> byCategory) {
+    }
+
+    private final class Slice {
+
+        final long[][] counts;
+        final TopK global = new TopK(topK);
+        final Map<String, TopK> byCategory = new HashMap<>();
+        long index = Long.MIN_VALUE;
+
+        Slice(int width) {
+            this.counts = new long[SKETCH_DEPTH][width];
+        }
+
+        void reset(long index) {
+            this.index = index;
+            for (long[] row : counts) {
+                Arrays.fill(row, 0L);
+            }
+            global.clear();
+            byCategory.clear();
+        }
+
+        // conservative update：只抬高等于当前最小值的计数器，降低高估
+        long add(long goodsId, long count, int widthMask) {
+            long estimate = estimate(goodsId, widthMask) + count;
+            for (int row = 0; row < SKETCH_DEPTH; row++) {
+                int b = bucket(goodsId, row, widthMask);
+                if (counts[row][b] < estimate) {
+                    counts[row][b] = estimate;
+                }
+            }
+            return estimate;
+        }
+
+        long estimate(long goodsId, int widthMask) {
+            long min = Long.MAX_VALUE;
+            for (int row = 0; row < SKETCH_DEPTH; row++) {
+                min = Math.min(min, counts[row][bucket(goodsId, row, widthMask)]);
+            }
+            return min;
+        }
+    }
+
+    /**
+     * 固定容量的小顶堆，堆顶是当前候选中计数最小的商品；
+     * 已在堆中的商品计数只会增大，原地下沉即可。
+     */
+    private static final class TopK {
+
+        private final long[] ids;
+        private final long[] counts;
+        private final Map<Long, Integer> positions;
+        private int size;
+
+        TopK(int capacity) {
+            this.ids = new long[capacity];
+            this.counts = new long[capacity];
+            this.positions = new HashMap<>(capacity * 2);
+        }
+
+        void offer(long id, long count) {
+            Integer pos = positions.get(id);
+            if (pos != null) {
+                counts[pos] = count;
+                siftDown(pos);
+            } else if (size < ids.length) {
+                ids[size] = id;
+                counts[size] = count;
+                positions.put(id, size);
+                siftUp(size++);
+            } else if (count > counts[0]) {
+                positions.remove(ids[0]);
+                ids[0] = id;
+                counts[0] = count;
+                positions.put(id, 0);
+                siftDown(0);
+            }
+        }
+
+        void collectInto(Set<Long> target) {
+            for (int i = 0; i < size; i++) {
+                target.add(ids[i]);
+            }
+        }
+
+        void clear() {
+            size = 0;
+            positions.clear();
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (counts[parent] <= counts[i]) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) {
+                    break;
+                }
+                int smallest = left + 1 < size && counts[left + 1] < counts[left] ? left + 1 : left;
+                if (counts[i] <= counts[smallest]) {
+                    break;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long id = ids[a];
+            long count = counts[a];
+            ids[a] = ids[b];
+            counts[a] = counts[b];
+            ids[b] = id;
+            counts[b] = count;
+            positions.put(ids[a], a);
+            positions.put(ids[b], b);
+        }
+    }
+}
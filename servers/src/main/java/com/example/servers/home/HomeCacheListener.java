@@ -0,0 +1,26 @@
+package com.example.servers.home;
+
+import com.example.servers.cache.CacheVersions;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * home_* 表写入后登记缓存失效，由 CacheVersions 通知所有实例重建首页快照。
+ */
+public class HomeCacheListener {
+
+    private final CacheVersions cacheVersions;
+
+    public HomeCacheListener(@Lazy CacheVersions cacheVersions) {
+        this.cacheVersions = cacheVersions;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        cacheVersions.markChanged(HomePageSnapshot.CACHE_NAME);
+    }
+}
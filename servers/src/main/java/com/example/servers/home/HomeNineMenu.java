@@ -2,6 +2,7 @@ package com.example.servers.home;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -9,6 +10,7 @@ import jakarta.persistence.Table;
 
 @Entity
 @Table(name = "home_nine_menu")
+@EntityListeners(HomeCacheListener.class)
 public class HomeNineMenu {
 
     @Id
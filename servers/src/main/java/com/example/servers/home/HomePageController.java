@@ -1,46 +1,24 @@
 package com.example.servers.home;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
 
-import com.example.servers.BaseResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
 public class HomePageController {
 
-    private final HomeBannerRepository bannerRepository;
-    private final HomeNineMenuRepository nineMenuRepository;
-    private final HomeTabRepository tabRepository;
-    private final HomeConfigRepository homeConfigRepository;
+    private final HomePageSnapshot snapshot;
 
-    public HomePageController(HomeBannerRepository bannerRepository,
-                              HomeNineMenuRepository nineMenuRepository,
-                              HomeTabRepository tabRepository,
-                              HomeConfigRepository homeConfigRepository) {
-        this.bannerRepository = bannerRepository;
-        this.nineMenuRepository = nineMenuRepository;
-        this.tabRepository = tabRepository;
-        this.homeConfigRepository = homeConfigRepository;
+    public HomePageController(HomePageSnapshot snapshot) {
+        this.snapshot = snapshot;
     }
 
+    // 直接写出预先序列化的响应，If-None-Match 命中时返回 304
     @PostMapping("/home/queryHomePageInfo")
-    public BaseResponse<Map<String, Object>> queryHomePageInfo() {
-        List<HomeBanner> banners = bannerRepository.findAllByOrderByIdAsc();
-        List<HomeNineMenu> nineMenus = nineMenuRepository.findAllByOrderByIdAsc();
-        List<HomeTab> tabs = tabRepository.findAllByOrderByIdAsc();
-
-        String adUrl = homeConfigRepository.findTopByOrderByIdAsc()
-                .map(HomeConfig::getAdUrl)
-                .orElse(null);
-
-        Map<String, Object> data = new HashMap<>();
-        data.put("bannerList", banners);
-        data.put("adUrl", adUrl);
-        data.put("nineMenuList", nineMenus);
-        data.put("tabList", tabs);
-        return BaseResponse.success(data);
+    public void queryHomePageInfo(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        snapshot.current().writeTo(request, response);
     }
 }
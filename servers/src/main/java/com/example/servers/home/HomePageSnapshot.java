@@ -0,0 +1,75 @@
+package com.example.servers.home;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.servers.BaseResponse;
+import com.example.servers.cache.CacheVersions;
+import com.example.servers.cache.JsonSnapshot;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * /home/queryHomePageInfo 的序列化快照，home_* 表变更后重建。
+ */
+@Component
+public class HomePageSnapshot {
+
+    public static final String CACHE_NAME = "home";
+
+    private final HomeBannerRepository bannerRepository;
+    private final HomeNineMenuRepository nineMenuRepository;
+    private final HomeTabRepository tabRepository;
+    private final HomeConfigRepository homeConfigRepository;
+    private final JsonMapper jsonMapper;
+
+    private volatile JsonSnapshot snapshot;
+
+    public HomePageSnapshot(HomeBannerRepository bannerRepository,
+                            HomeNineMenuRepository nineMenuRepository,
+                            HomeTabRepository tabRepository,
+                            HomeConfigRepository homeConfigRepository,
+                            CacheVersions cacheVersions,
+                            JsonMapper jsonMapper) {
+        this.bannerRepository = bannerRepository;
+        this.nineMenuRepository = nineMenuRepository;
+        this.tabRepository = tabRepository;
+        this.homeConfigRepository = homeConfigRepository;
+        this.jsonMapper = jsonMapper;
+        cacheVersions.register(CACHE_NAME, this::reload);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        List<HomeBanner> banners = bannerRepository.findAllByOrderByIdAsc();
+        List<HomeNineMenu> nineMenus = nineMenuRepository.findAllByOrderByIdAsc();
+        List<HomeTab> tabs = tabRepository.findAllByOrderByIdAsc();
+
+        String adUrl = homeConfigRepository.findTopByOrderByIdAsc()
+                .map(HomeConfig::getAdUrl)
+                .orElse(null);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("bannerList", banners);
+        data.put("adUrl", adUrl);
+        data.put("nineMenuList", nineMenus);
+        data.put("tabList", tabs);
+        snapshot = JsonSnapshot.of(jsonMapper, BaseResponse.success(data));
+    }
+
+    public JsonSnapshot current() {
+        JsonSnapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+}
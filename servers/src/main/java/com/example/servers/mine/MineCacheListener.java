@@ -0,0 +1,26 @@
+package com.example.servers.mine;
+
+import com.example.servers.cache.CacheVersions;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * mine_function / mine_tab 写入后登记缓存失效，由 CacheVersions 通知所有实例重建。
+ */
+public class MineCacheListener {
+
+    private final CacheVersions cacheVersions;
+
+    public MineCacheListener(@Lazy CacheVersions cacheVersions) {
+        this.cacheVersions = cacheVersions;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        cacheVersions.markChanged(MineInfoSnapshot.CACHE_NAME);
+    }
+}
@@ -1,33 +1,24 @@
 package com.example.servers.mine;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
 
-import com.example.servers.BaseResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
 public class MineController {
 
-    private final MineFunctionRepository functionRepository;
-    private final MineTabRepository tabRepository;
+    private final MineInfoSnapshot snapshot;
 
-    public MineController(MineFunctionRepository functionRepository,
-                          MineTabRepository tabRepository) {
-        this.functionRepository = functionRepository;
-        this.tabRepository = tabRepository;
+    public MineController(MineInfoSnapshot snapshot) {
+        this.snapshot = snapshot;
     }
 
+    // 直接写出预先序列化的响应，If-None-Match 命中时返回 304
     @PostMapping("/mine/queryMineInfo")
-    public BaseResponse<Map<String, Object>> queryMineInfo() {
-        List<MineFunction> functionList = functionRepository.findAllByOrderByIdAsc();
-        List<MineTab> tabList = tabRepository.findAllByOrderByIdAsc();
-        Map<String, Object> data = new HashMap<>();
-        data.put("functionList", functionList);
-        data.put("tabList", tabList);
-        return BaseResponse.success(data);
+    public void queryMineInfo(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        snapshot.current().writeTo(request, response);
     }
 }
-
@@ -0,0 +1,61 @@
+package com.example.servers.mine;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.servers.BaseResponse;
+import com.example.servers.cache.CacheVersions;
+import com.example.servers.cache.JsonSnapshot;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * /mine/queryMineInfo 的序列化快照，mine_function / mine_tab 变更后重建。
+ */
+@Component
+public class MineInfoSnapshot {
+
+    public static final String CACHE_NAME = "mine";
+
+    private final MineFunctionRepository functionRepository;
+    private final MineTabRepository tabRepository;
+    private final JsonMapper jsonMapper;
+
+    private volatile JsonSnapshot snapshot;
+
+    public MineInfoSnapshot(MineFunctionRepository functionRepository,
+                            MineTabRepository tabRepository,
+                            CacheVersions cacheVersions,
+                            JsonMapper jsonMapper) {
+        this.functionRepository = functionRepository;
+        this.tabRepository = tabRepository;
+        this.jsonMapper = jsonMapper;
+        cacheVersions.register(CACHE_NAME, this::reload);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        List<MineFunction> functionList = functionRepository.findAllByOrderByIdAsc();
+        List<MineTab> tabList = tabRepository.findAllByOrderByIdAsc();
+        Map<String, Object> data = new HashMap<>();
+        data.put("functionList", functionList);
+        data.put("tabList", tabList);
+        snapshot = JsonSnapshot.of(jsonMapper, BaseResponse.success(data));
+    }
+
+    public JsonSnapshot current() {
+        JsonSnapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+}
@@ -7,7 +7,11 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "t_order")
+@Table(name = "t_order", indexes = {
+        @Index(name = "idx_order_user_created", columnList = "userId, createdAt, id"),
+        @Index(name = "idx_order_user_status_created", columnList = "userId, status, createdAt, id"),
+        @Index(name = "idx_order_status_amount", columnList = "status, totalAmount")
+})
 public class Order {
 
     @Id
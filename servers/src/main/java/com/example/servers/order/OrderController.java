@@ -7,40 +7,58 @@ import com.example.servers.cart.CartItemRepository;
 import com.example.servers.cart.CartRepository;
 import com.example.servers.coupon.Coupon;
 import com.example.servers.coupon.CouponRepository;
-import org.springframework.data.domain.Page;
+import com.example.servers.goods.GoodsPrice;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @RestController
 public class OrderController {
 
+    // 订单列表按 (createdAt, id) 倒序，与游标和复合索引一致
+    private static final Sort LIST_SORT = Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id"));
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final CouponRepository couponRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrderNoGenerator orderNoGenerator;
+    private final OrderCountCache orderCountCache;
+    private final OrderStatusCounters orderStatusCounters;
+    private final OrderStateMachine orderStateMachine;
 
     public OrderController(OrderRepository orderRepository,
                            OrderItemRepository orderItemRepository,
                            CartRepository cartRepository,
                            CartItemRepository cartItemRepository,
-                           CouponRepository couponRepository) {
+                           CouponRepository couponRepository,
+                           ApplicationEventPublisher eventPublisher,
+                           OrderNoGenerator orderNoGenerator,
+                           OrderCountCache orderCountCache,
+                           OrderStatusCounters orderStatusCounters,
+                           OrderStateMachine orderStateMachine) {
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
         this.couponRepository = couponRepository;
+        this.eventPublisher = eventPublisher;
+        this.orderNoGenerator = orderNoGenerator;
+        this.orderCountCache = orderCountCache;
+        this.orderStatusCounters = orderStatusCounters;
+        this.orderStateMachine = orderStateMachine;
     }
 
     @PostMapping("/order/create")
@@ -59,12 +77,13 @@ public class OrderController {
         if (selectedItems.isEmpty()) {
             return new BaseResponse<>("400", "请选择要购买的商品", null);
         }
+        // 计数行在独立事务中先行建好，本事务内只做相对更新
+        orderStatusCounters.ensureRow(userId);
         
         // 计算订单总金额
         BigDecimal totalAmount = BigDecimal.ZERO;
         for (CartItem item : selectedItems) {
-            BigDecimal price = item.getPrice() != null ? new BigDecimal(item.getPrice()) : BigDecimal.ZERO;
-            totalAmount = totalAmount.add(price.multiply(new BigDecimal(item.getNum())));
+            totalAmount = totalAmount.add(unitPrice(item).multiply(new BigDecimal(item.getNum())));
         }
 
         // 处理红包优惠
@@ -91,7 +110,7 @@ public class OrderController {
 
         // 创建订单
         Order order = new Order();
-        order.setOrderNo(generateOrderNo());
+        order.setOrderNo(orderNoGenerator.next());
         order.setUserId(userId);
         order.setTotalAmount(totalAmount);
         order.setStatus("PENDING_PAYMENT");
@@ -108,22 +127,30 @@ public class OrderController {
         
         order = orderRepository.save(order);
         
-        // 创建订单明细
+        // 创建订单明细：id 由号段分配，saveAll 后在提交时作为一个 JDBC 批次插入
+        List<OrderItem> orderItems = new ArrayList<>(selectedItems.size());
+        List<OrderLine> lines = new ArrayList<>(selectedItems.size());
+        List<Long> cartItemIds = new ArrayList<>(selectedItems.size());
         for (CartItem cartItem : selectedItems) {
             OrderItem orderItem = new OrderItem();
             orderItem.setOrderId(order.getId());
             orderItem.setGoodsId(Long.parseLong(cartItem.getCode()));
             orderItem.setGoodsName(cartItem.getDescription());
             orderItem.setGoodsImage(cartItem.getImgUrl());
-            orderItem.setPrice(cartItem.getPrice() != null ? new BigDecimal(cartItem.getPrice()) : BigDecimal.ZERO);
+            orderItem.setPrice(unitPrice(cartItem));
             orderItem.setQuantity(cartItem.getNum());
             orderItem.setColor(cartItem.getColor());
             orderItem.setSize(cartItem.getSize());
-            orderItemRepository.save(orderItem);
+            orderItems.add(orderItem);
+            lines.add(OrderLine.of(orderItem));
+            cartItemIds.add(cartItem.getId());
         }
+        orderItemRepository.saveAll(orderItems);
         
-        // 从购物车中移除已下单的商品
-        cartItemRepository.deleteAll(selectedItems);
+        // 从购物车中移除已下单的商品（一条 DELETE ... WHERE id IN）
+        cartItemRepository.deleteAllByIdInBatch(cartItemIds);
+
+        publishStatusChange(order, null, lines);
         
         Map<String, Object> result = new HashMap<>();
         result.put("orderId", order.getId());
@@ -137,38 +164,119 @@ public class OrderController {
     public BaseResponse<Map<String, Object>> queryOrderList(@RequestBody Map<String, Object> body) {
         String userId = resolveUserId(body);
         String status = getStringValue(body, "status", null);
-        int page = getIntValue(body, "page", 0);
-        int size = getIntValue(body, "size", 10);
-        
-        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        
-        Page<Order> orderPage;
-        if (status != null && !status.isEmpty() && !"ALL".equals(status)) {
-            orderPage = orderRepository.findByUserIdAndStatus(userId, status, pageable);
-        } else {
-            orderPage = orderRepository.findByUserId(userId, pageable);
+        if (status != null && (status.isEmpty() || OrderCountCache.ALL.equals(status))) {
+            status = null;
         }
-        
-        List<Map<String, Object>> orderList = orderPage.getContent().stream().map(order -> {
-            Map<String, Object> orderMap = convertOrderToMap(order);
-            
-            // 查询订单商品列表
-            List<OrderItem> items = orderItemRepository.findByOrderId(order.getId());
-            List<Map<String, Object>> itemList = items.stream().map(this::convertOrderItemToMap).collect(Collectors.toList());
-            orderMap.put("items", itemList);
-            
-            return orderMap;
-        }).collect(Collectors.toList());
-        
+        int size = Math.max(getIntValue(body, "size", 10), 1);
+        // summary=true 时每个订单只返回件数和首个商品缩略图
+        boolean summary = Boolean.parseBoolean(getStringValue(body, "summary", "false"));
+        // withTotal=false 时不统计总数；需要时总数按用户和状态缓存
+        boolean withTotal = Boolean.parseBoolean(getStringValue(body, "withTotal", "true"));
+        // 多取一条判断是否还有下一页
+        Pageable limit = PageRequest.of(0, size + 1);
+
         Map<String, Object> result = new HashMap<>();
-        result.put("orderList", orderList);
-        result.put("totalPages", orderPage.getTotalPages());
-        result.put("totalElements", orderPage.getTotalElements());
-        result.put("currentPage", page);
-        
+        Long total = withTotal ? orderCountCache.count(userId, status) : null;
+        List<Order> orders;
+        boolean hasMore;
+        if (body.containsKey("cursor")) {
+            // 游标模式：cursor 为空取第一页，之后传上一页返回的 nextCursor
+            String cursor = getStringValue(body, "cursor", "");
+            if (cursor.isEmpty()) {
+                orders = findOrderPage(userId, status, PageRequest.of(0, size + 1, LIST_SORT));
+            } else {
+                OrderCursor after = OrderCursor.decode(cursor);
+                if (after == null) {
+                    return new BaseResponse<>("400", "游标无效", null);
+                }
+                orders = status == null
+                        ? orderRepository.findByUserIdBefore(userId, after.createdAt(), after.id(), limit)
+                        : orderRepository.findByUserIdAndStatusBefore(userId, status, after.createdAt(), after.id(), limit);
+            }
+            hasMore = orders.size() > size;
+            if (hasMore) {
+                orders = orders.subList(0, size);
+            }
+            Order last = orders.isEmpty() ? null : orders.get(orders.size() - 1);
+            result.put("nextCursor", hasMore ? OrderCursor.encode(last.getCreatedAt(), last.getId()) : null);
+        } else {
+            // 偏移分页保留给旧客户端，不再附带 COUNT 查询
+            int page = Math.max(getIntValue(body, "page", 0), 0);
+            orders = findOrderPage(userId, status, PageRequest.of(page, size, LIST_SORT));
+            hasMore = total != null ? (long) (page + 1) * size < total : orders.size() == size;
+            result.put("currentPage", page);
+        }
+
+        result.put("orderList", toOrderMaps(orders, summary));
+        result.put("hasMore", hasMore);
+        if (total != null) {
+            result.put("totalElements", total);
+            result.put("totalPages", (int) ((total + size - 1) / size));
+        }
         return BaseResponse.success(result);
     }
 
+    private List<Order> findOrderPage(String userId, String status, Pageable pageable) {
+        return status == null
+                ? orderRepository.findListByUserId(userId, pageable)
+                : orderRepository.findListByUserIdAndStatus(userId, status, pageable);
+    }
+
+    // 整页订单的明细用一次 IN 查询取出，summary 模式只取件数和首个缩略图
+    private List<Map<String, Object>> toOrderMaps(List<Order> orders, boolean summary) {
+        List<Long> orderIds = orders.stream().map(Order::getId).collect(Collectors.toList());
+        List<Map<String, Object>> orderList = new ArrayList<>(orders.size());
+        if (orderIds.isEmpty()) {
+            return orderList;
+        }
+        if (summary) {
+            Map<Long, Map<String, Object>> summaries = new HashMap<>();
+            for (Object[] row : orderItemRepository.findSummaryRowsByOrderIdIn(orderIds)) {
+                Map<String, Object> s = summaries.computeIfAbsent((Long) row[0], k -> {
+                    Map<String, Object> m = new HashMap<>();
+                    m.put("itemCount", 0);
+                    m.put("totalQuantity", 0);
+                    m.put("thumbnail", row[2]);
+                    return m;
+                });
+                s.put("itemCount", (Integer) s.get("itemCount") + 1);
+                s.put("totalQuantity", (Integer) s.get("totalQuantity") + (row[3] == null ? 0 : (Integer) row[3]));
+            }
+            for (Order order : orders) {
+                Map<String, Object> orderMap = convertOrderToMap(order);
+                Map<String, Object> s = summaries.get(order.getId());
+                orderMap.put("itemCount", s == null ? 0 : s.get("itemCount"));
+                orderMap.put("totalQuantity", s == null ? 0 : s.get("totalQuantity"));
+                orderMap.put("thumbnail", s == null ? null : s.get("thumbnail"));
+                orderList.add(orderMap);
+            }
+        } else {
+            Map<Long, List<Map<String, Object>>> itemsByOrder = new HashMap<>();
+            for (OrderItem item : orderItemRepository.findByOrderIdInOrderByOrderIdAscIdAsc(orderIds)) {
+                itemsByOrder.computeIfAbsent(item.getOrderId(), k -> new ArrayList<>()).add(convertOrderItemToMap(item));
+            }
+            for (Order order : orders) {
+                Map<String, Object> orderMap = convertOrderToMap(order);
+                orderMap.put("items", itemsByOrder.getOrDefault(order.getId(), List.of()));
+                orderList.add(orderMap);
+            }
+        }
+        return orderList;
+    }
+
+    // “我的”页面角标：待付款 / 待发货 / 待收货等各状态订单数
+    // 不带请求体（也没有 Content-Type）的调用按游客统计
+    @PostMapping("/order/statusCounts")
+    public BaseResponse<Map<String, Object>> queryStatusCounts() {
+        return queryStatusCounts(Map.of());
+    }
+
+    // 请求体必填，不带请求体的调用才会落到上面的无参版本
+    @PostMapping(value = "/order/statusCounts", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BaseResponse<Map<String, Object>> queryStatusCounts(@RequestBody Map<String, Object> body) {
+        return BaseResponse.success(orderStatusCounters.get(resolveUserId(body)));
+    }
+
     @PostMapping("/order/detail")
     public BaseResponse<Map<String, Object>> queryOrderDetail(@RequestBody Map<String, Object> body) {
         String userId = resolveUserId(body);
@@ -217,13 +325,15 @@ public class OrderController {
         if (!order.getUserId().equals(userId)) {
             return new BaseResponse<>("403", "无权操作该订单", null);
         }
+        // 计数行在独立事务中先行建好，本事务内只做相对更新
+        orderStatusCounters.ensureRow(userId);
         
-        if ("COMPLETED".equals(order.getStatus()) || "CANCELLED".equals(order.getStatus())) {
+        // 条件更新，与支付等并发请求竞争时只有一个成功
+        String fromStatus = order.getStatus();
+        if (!orderStateMachine.transition(order, "CANCELLED")) {
             return new BaseResponse<>("400", "订单当前状态不允许取消", null);
         }
-        
-        order.setStatus("CANCELLED");
-        orderRepository.save(order);
+        publishStatusChange(order, fromStatus, lines(orderId));
         
         return BaseResponse.success("订单已取消");
     }
@@ -247,14 +357,13 @@ public class OrderController {
         if (!order.getUserId().equals(userId)) {
             return new BaseResponse<>("403", "无权操作该订单", null);
         }
+        // 计数行在独立事务中先行建好，本事务内只做相对更新
+        orderStatusCounters.ensureRow(userId);
         
-        if (!"PENDING_RECEIPT".equals(order.getStatus())) {
+        if (!orderStateMachine.transition(order, "COMPLETED")) {
             return new BaseResponse<>("400", "订单当前状态不允许确认收货", null);
         }
-        
-        order.setStatus("COMPLETED");
-        order.setCompletedTime(LocalDateTime.now());
-        orderRepository.save(order);
+        publishStatusChange(order, "PENDING_RECEIPT");
         
         return BaseResponse.success("确认收货成功");
     }
@@ -278,13 +387,19 @@ public class OrderController {
         if (!order.getUserId().equals(userId)) {
             return new BaseResponse<>("403", "无权操作该订单", null);
         }
+        // 计数行在独立事务中先行建好，本事务内只做相对更新
+        orderStatusCounters.ensureRow(userId);
         
         if (!"COMPLETED".equals(order.getStatus()) && !"CANCELLED".equals(order.getStatus())) {
             return new BaseResponse<>("400", "只有已完成或已取消的订单可以删除", null);
         }
         
+        // 明细删除前取出，供汇总扣减
+        List<OrderLine> lines = lines(orderId);
         orderItemRepository.deleteByOrderId(orderId);
         orderRepository.deleteById(orderId);
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, userId, order.getStatus(), null,
+                order.getTotalAmount(), order.getDiscountAmount(), order.getCreatedAt(), lines));
         
         return BaseResponse.success("订单已删除");
     }
@@ -308,15 +423,14 @@ public class OrderController {
         if (!order.getUserId().equals(userId)) {
             return new BaseResponse<>("403", "无权操作该订单", null);
         }
+        // 计数行在独立事务中先行建好，本事务内只做相对更新
+        orderStatusCounters.ensureRow(userId);
         
-        if (!"PENDING_PAYMENT".equals(order.getStatus())) {
+        // 模拟支付成功；重复点击时只有第一次请求的条件更新生效
+        if (!orderStateMachine.transition(order, "PENDING_SHIPMENT")) {
             return new BaseResponse<>("400", "订单当前状态不允许支付", null);
         }
-        
-        // 模拟支付成功
-        order.setStatus("PENDING_SHIPMENT");
-        order.setPaymentTime(LocalDateTime.now());
-        orderRepository.save(order);
+        publishStatusChange(order, "PENDING_PAYMENT");
         
         return BaseResponse.success("支付成功");
     }
@@ -352,11 +466,24 @@ public class OrderController {
         }
     }
 
-    private String generateOrderNo() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
-        String timestamp = LocalDateTime.now().format(formatter);
-        String random = String.format("%04d", new Random().nextInt(10000));
-        return "ORD" + timestamp + random;
+    // 事务提交后由统计等组件增量更新
+    private void publishStatusChange(Order order, String fromStatus) {
+        publishStatusChange(order, fromStatus, List.of());
+    }
+
+    private void publishStatusChange(Order order, String fromStatus, List<OrderLine> lines) {
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(order.getId(), order.getUserId(), fromStatus,
+                order.getStatus(), order.getTotalAmount(), order.getDiscountAmount(), order.getCreatedAt(), lines));
+    }
+
+    private List<OrderLine> lines(Long orderId) {
+        return orderItemRepository.findByOrderId(orderId).stream().map(OrderLine::of).collect(Collectors.toList());
+    }
+
+    // 优先使用加购时记录的 priceFen，历史购物车项回退到字符串价格
+    private BigDecimal unitPrice(CartItem item) {
+        Long fen = item.getPriceFen() != null ? item.getPriceFen() : GoodsPrice.toFen(item.getPrice());
+        return fen != null ? GoodsPrice.toYuan(fen) : BigDecimal.ZERO;
     }
 
     private Map<String, Object> convertOrderToMap(Order order) {
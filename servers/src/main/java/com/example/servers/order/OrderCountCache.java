@@ -0,0 +1,108 @@
+package com.example.servers.order;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 订单列表总数缓存，按 (userId, status) 缓存 COUNT 结果，status 为 ALL 表示全部订单。
+ * 该用户的订单创建、状态流转或删除时失效相关条目；加载期间被失效的结果不写入缓存。
+ * 条目保存在按访问顺序排列的 LinkedHashMap 中，超过容量时淘汰最久未访问的条目，所有访问都在 entries 上加锁。
+ */
+@Component
+public class OrderCountCache {
+
+    public static final String ALL = "ALL";
+
+    private final OrderRepository orderRepository;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final Map<String, Entry> entries;
+    private final Map<String, Object> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public OrderCountCache(OrderRepository orderRepository,
+                           @Value("${order.list.count-cache.max-size:10000}") int maxSize,
+                           @Value("${order.list.count-cache.ttl-ms:60000}") long ttlMs) {
+        this.orderRepository = orderRepository;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, OrderCountCache.Entry> eldest) {
+                return size() > OrderCountCache.this.maxSize;
+            }
+        };
+    }
+
+    /** status 为 null / 空 / ALL 时统计该用户全部订单 */
+    public long count(String userId, String status) {
+        String normalized = status == null || status.isEmpty() ? ALL : status;
+        String key = key(userId, normalized);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+            hits.increment();
+            return entry.count;
+        }
+        misses.increment();
+        Object token = new Object();
+        loading.put(key, token);
+        long count = ALL.equals(normalized)
+                ? orderRepository.countByUserId(userId)
+                : orderRepository.countByUserIdAndStatus(userId, normalized);
+        synchronized (entries) {
+            if (loading.remove(key, token)) {
+                entries.put(key, new Entry(count, System.nanoTime() + ttlNanos));
+            }
+        }
+        return count;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        invalidate(event.getUserId(), ALL);
+        invalidate(event.getUserId(), event.getFromStatus());
+        invalidate(event.getUserId(), event.getToStatus());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        synchronized (entries) {
+            m.put("size", entries.size());
+        }
+        m.put("maxSize", maxSize);
+        m.put("hits", hits.sum());
+        m.put("misses", misses.sum());
+        return m;
+    }
+
+    private void invalidate(String userId, String status) {
+        if (userId == null || status == null) {
+            return;
+        }
+        String key = key(userId, status);
+        synchronized (entries) {
+            loading.remove(key);
+            entries.remove(key);
+        }
+    }
+
+    private static String key(String userId, String status) {
+        return userId + '\u0000' + status;
+    }
+
+    private record Entry(long count, long expiresAt) {
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.servers.order;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订单明细改用表号段分配 id 后，历史数据的 id 来自自增列。
+ * 启动时把号段起点推到现有最大 id 之后，避免新分配的 id 与历史行冲突。
+ * 依赖 OrderItemRepository 以保证 JPA 已完成建表。
+ */
+@Component
+public class OrderItemIdSeeder {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderItemIdSeeder(JdbcTemplate jdbcTemplate, OrderItemRepository orderItemRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void seed() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM t_order_item", Long.class);
+        // 多留一个号段，无论号段值按区间上界还是下界解释都不会落在已有 id 上
+        long floor = (maxId == null ? 0 : maxId) + OrderItem.ID_ALLOCATION_SIZE + 1;
+        String table = OrderItem.ID_GENERATOR_TABLE;
+        int updated = jdbcTemplate.update("UPDATE " + table + " SET next_val = ? WHERE sequence_name = ? AND next_val < ?",
+                floor, OrderItem.ID_GENERATOR_KEY, floor);
+        if (updated > 0) {
+            return;
+        }
+        Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE sequence_name = ?",
+                Long.class, OrderItem.ID_GENERATOR_KEY);
+        if (rows != null && rows == 0) {
+            try {
+                jdbcTemplate.update("INSERT INTO " + table + " (sequence_name, next_val) VALUES (?, ?)",
+                        OrderItem.ID_GENERATOR_KEY, floor);
+            } catch (DuplicateKeyException ex) {
+                // 其他实例已插入，由其负责
+            }
+        }
+    }
+}
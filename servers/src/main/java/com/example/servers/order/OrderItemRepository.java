@@ -1,12 +1,23 @@
 package com.example.servers.order;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     
     List<OrderItem> findByOrderId(Long orderId);
+
+    // 列表页一次取出整页订单的明细，在内存中按订单分组
+    List<OrderItem> findByOrderIdInOrderByOrderIdAscIdAsc(Collection<Long> orderIds);
+
+    // 列表摘要只需要件数和首个缩略图：orderId, id, goodsImage, quantity
+    @Query("SELECT i.orderId, i.id, i.goodsImage, i.quantity FROM OrderItem i " +
+            "WHERE i.orderId IN :orderIds ORDER BY i.orderId, i.id")
+    List<Object[]> findSummaryRowsByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
     
     void deleteByOrderId(Long orderId);
 }
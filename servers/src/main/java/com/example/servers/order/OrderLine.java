@@ -0,0 +1,14 @@
+package com.example.servers.order;
+
+import java.math.BigDecimal;
+
+/**
+ * 订单事件携带的明细摘要：商品、件数和明细金额（单价 × 件数）。
+ */
+public record OrderLine(Long goodsId, int quantity, BigDecimal amount) {
+
+    public static OrderLine of(OrderItem item) {
+        int quantity = item.getQuantity() == null ? 0 : item.getQuantity();
+        return new OrderLine(item.getGoodsId(), quantity, item.getPrice().multiply(BigDecimal.valueOf(quantity)));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.servers.order;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订单号生成器，格式为 ORD + yyyyMMddHHmmssSSS + 3 位节点号 + 4 位毫秒内序号。
+ * 毫秒时间戳和序号合成一个 long 保存在 AtomicLong 中，CAS 递增，不加锁也不需要节点间协调。
+ * 单毫秒内序号用完时进位到下一毫秒；系统时钟回拨时逻辑时钟停在原处继续递增，
+ * 因此同一节点上生成的订单号始终单调递增、不会重复。
+ * 节点号 order.no.node-id 必须显式配置且各实例不同，未配置时启动失败；
+ * 启动时从该节点已有的最大订单号继续，重启前时钟超前或重启后时钟回拨都不会生成重复订单号。
+ */
+@Component
+public class OrderNoGenerator {
+
+    private static final String PREFIX = "ORD";
+    private static final long SEQ_LIMIT = 10_000L;
+    private static final int NODE_LIMIT = 1_000;
+    private static final DateTimeFormatter MILLIS_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+    private static final int STAMP_LENGTH = 17;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final String node;
+    private final LongSupplier clock;
+    // 逻辑毫秒 * SEQ_LIMIT + 序号
+    private final AtomicLong state = new AtomicLong();
+    private final LongAdder clockBorrowed = new LongAdder();
+
+    // 最近一次格式化的毫秒，同一毫秒内的订单号复用日期前缀
+    private volatile Stamp lastStamp = new Stamp(Long.MIN_VALUE, "");
+
+    @Autowired
+    public OrderNoGenerator(OrderRepository orderRepository, @Value("${order.no.node-id:}") Integer nodeId) {
+        this(nodeId, System::currentTimeMillis);
+        String last = orderRepository.findMaxOrderNoLike(nodePattern());
+        seed(last);
+        System.out.println("订单号节点号：" + node + (last == null ? "" : "，从 " + last + " 之后继续"));
+    }
+
+    OrderNoGenerator(Integer nodeId, LongSupplier clock) {
+        if (nodeId == null || nodeId < 0 || nodeId >= NODE_LIMIT) {
+            throw new IllegalStateException("order.no.node-id 必须配置为 0-" + (NODE_LIMIT - 1) + " 且各实例不同，当前为 " + nodeId);
+        }
+        this.node = String.format("%03d", nodeId);
+        this.clock = clock;
+    }
+
+    /** 让后续订单号排在 lastOrderNo 之后，lastOrderNo 为 null 或格式不符时忽略 */
+    void seed(String lastOrderNo) {
+        Long parsed = parse(lastOrderNo);
+        if (parsed != null) {
+            state.accumulateAndGet(parsed, Math::max);
+        }
+    }
+
+    public String next() {
+        long now = clock.getAsLong();
+        long prev;
+        long next;
+        do {
+            prev = state.get();
+            next = Math.max(now * SEQ_LIMIT, prev + 1);
+        } while (!state.compareAndSet(prev, next));
+        long millis = next / SEQ_LIMIT;
+        if (millis > now) {
+            // 序号用完或时钟回拨，借用了未来的毫秒
+            clockBorrowed.increment();
+        }
+        return PREFIX + stamp(millis) + node + String.format("%04d", next % SEQ_LIMIT);
+    }
+
+    /** 因序号用完或时钟回拨而提前使用后续毫秒的次数 */
+    public long clockBorrowed() {
+        return clockBorrowed.sum();
+    }
+
+    private String stamp(long millis) {
+        Stamp s = lastStamp;
+        if (s.millis() != millis) {
+            s = new Stamp(millis, MILLIS_FORMAT.format(Instant.ofEpochMilli(millis).atZone(zone)));
+            lastStamp = s;
+        }
+        return s.text();
+    }
+
+    // LIKE 模式：ORD + 17 位时间 + 本节点号 + 4 位序号，定长，字符串最大即最新
+    private String nodePattern() {
+        return PREFIX + "_".repeat(STAMP_LENGTH) + node + "____";
+    }
+
+    // 还原成 state 的取值：逻辑毫秒 * SEQ_LIMIT + 序号
+    private Long parse(String orderNo) {
+        int length = PREFIX.length() + STAMP_LENGTH + node.length() + 4;
+        if (orderNo == null || orderNo.length() != length || !orderNo.startsWith(PREFIX)) {
+            return null;
+        }
+        int nodeStart = PREFIX.length() + STAMP_LENGTH;
+        if (!node.equals(orderNo.substring(nodeStart, nodeStart + node.length()))) {
+            return null;
+        }
+        try {
+            long millis = LocalDateTime.parse(orderNo.substring(PREFIX.length(), nodeStart), MILLIS_FORMAT)
+                    .atZone(zone).toInstant().toEpochMilli();
+            long seq = Long.parseLong(orderNo.substring(nodeStart + node.length()));
+            return millis * SEQ_LIMIT + seq;
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private record Stamp(long millis, String text) {
+    }
+}
@@ -3,7 +3,11 @@ package com.example.servers.order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
@@ -13,8 +17,58 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     Page<Order> findByUserIdAndStatus(String userId, String status, Pageable pageable);
     
     List<Order> findByUserId(String userId);
+
+    // 不带 COUNT 的分页，总数由 OrderCountCache 提供
+    List<Order> findListByUserId(String userId, Pageable pageable);
+
+    List<Order> findListByUserIdAndStatus(String userId, String status, Pageable pageable);
+
+    long countByUserId(String userId);
+
+    long countByUserIdAndStatus(String userId, String status);
+
+    // 游标翻页：取 (createdAt, id) 严格小于游标的下一页，走 (user_id, [status,] created_at, id) 复合索引
+    @Query("SELECT o FROM Order o WHERE o.userId = :userId " +
+            "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findByUserIdBefore(@Param("userId") String userId, @Param("createdAt") LocalDateTime createdAt,
+                                   @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT o FROM Order o WHERE o.userId = :userId AND o.status = :status " +
+            "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findByUserIdAndStatusBefore(@Param("userId") String userId, @Param("status") String status,
+                                            @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                            Pageable pageable);
     
     Order findByOrderNo(String orderNo);
 
     long countByStatus(String status);
+
+    // 按状态聚合订单数和金额，用于校准内存中的统计
+    @Query("SELECT o.status, COUNT(o), SUM(o.totalAmount) FROM Order o GROUP BY o.status")
+    List<Object[]> aggregateByStatus();
+
+    // 条件更新状态：只有当前状态仍为 fromStatus 时才生效，返回更新行数；时间参数为 null 时保留原值
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :toStatus, " +
+            "o.paymentTime = COALESCE(:paymentTime, o.paymentTime), " +
+            "o.completedTime = COALESCE(:completedTime, o.completedTime) " +
+            "WHERE o.id = :id AND o.userId = :userId AND o.status = :fromStatus")
+    int compareAndSetStatus(@Param("id") Long id, @Param("userId") String userId,
+                            @Param("fromStatus") String fromStatus, @Param("toStatus") String toStatus,
+                            @Param("paymentTime") LocalDateTime paymentTime,
+                            @Param("completedTime") LocalDateTime completedTime);
+
+    // 仪表盘用最大 id 的增长估算新订单数，主键上只取一行
+    @Query("SELECT MAX(o.id) FROM Order o")
+    Long findMaxId();
+
+    // 订单号生成器启动时取本节点已用到的最大订单号
+    @Query("SELECT MAX(o.orderNo) FROM Order o WHERE o.orderNo LIKE :pattern")
+    String findMaxOrderNoLike(@Param("pattern") String pattern);
+
+    // 单个用户按状态的订单数，用于初始化状态计数行
+    @Query("SELECT o.status, COUNT(o) FROM Order o WHERE o.userId = :userId GROUP BY o.status")
+    List<Object[]> countByStatusForUser(@Param("userId") String userId);
 }
@@ -0,0 +1,114 @@
+package com.example.servers.order;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 订单汇总：某个小时 / 天内下单（未取消）的订单数、金额、优惠和件数。
+ * categoryCode 为 "*" 的行是全部订单，revenue 为实付金额；
+ * 分类行按订单明细统计，orderCount 为包含该分类商品的订单数，revenue 为明细金额，不分摊优惠。
+ * 时间桶按订单 createdAt（服务器本地时间）截断。
+ */
+@Entity
+@Table(name = "order_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_order_rollup_bucket",
+                columnNames = {"granularity", "bucketStart", "categoryCode"}),
+        indexes = @Index(name = "idx_order_rollup_category_bucket", columnList = "granularity, categoryCode, bucketStart"))
+public class OrderRollup {
+
+    public static final String ALL_CATEGORIES = "*";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 8)
+    private String granularity;
+
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false, length = 64)
+    private String categoryCode;
+
+    @Column(nullable = false)
+    private Long orderCount;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal discount;
+
+    @Column(nullable = false)
+    private Long itemsSold;
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public String getCategoryCode() {
+        return categoryCode;
+    }
+
+    public void setCategoryCode(String categoryCode) {
+        this.categoryCode = categoryCode;
+    }
+
+    public Long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(Long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public BigDecimal getDiscount() {
+        return discount;
+    }
+
+    public void setDiscount(BigDecimal discount) {
+        this.discount = discount;
+    }
+
+    public Long getItemsSold() {
+        return itemsSold;
+    }
+
+    public void setItemsSold(Long itemsSold) {
+        this.itemsSold = itemsSold;
+    }
+}
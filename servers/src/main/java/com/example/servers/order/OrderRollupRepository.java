@@ -0,0 +1,18 @@
+package com.example.servers.order;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface OrderRollupRepository extends JpaRepository<OrderRollup, Long> {
+
+    @Query("SELECT r FROM OrderRollup r WHERE r.granularity = :granularity AND r.categoryCode = :categoryCode " +
+            "AND r.bucketStart >= :from AND r.bucketStart < :to ORDER BY r.bucketStart")
+    List<OrderRollup> findInRange(@Param("granularity") String granularity,
+                                  @Param("categoryCode") String categoryCode,
+                                  @Param("from") LocalDateTime from,
+                                  @Param("to") LocalDateTime to);
+}
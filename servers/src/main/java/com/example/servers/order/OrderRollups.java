@@ -0,0 +1,422 @@
+package com.example.servers.order;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.example.servers.goods.GoodsSearchIndex;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 订单的小时 / 天汇总。
+ * 只统计未取消的订单：新建计入，取消或删除时扣减，其余状态流转不影响汇总。
+ * 订单事务提交后把增量累加在内存中，定时 upsert 到 order_rollup；
+ * 回填任务按 id 区间把 t_order 切块并行扫描，重新计算全部历史后整表替换。
+ */
+@Component
+public class OrderRollups {
+
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+
+    private static final String UPDATE_SQL = "UPDATE order_rollup SET order_count = order_count + ?, " +
+            "revenue = revenue + ?, discount = discount + ?, items_sold = items_sold + ? " +
+            "WHERE granularity = ? AND bucket_start = ? AND category_code = ?";
+    private static final String INSERT_SQL = "INSERT INTO order_rollup " +
+            "(granularity, bucket_start, category_code, order_count, revenue, discount, items_sold) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String CHUNK_ORDERS_SQL = "SELECT id, created_at, total_amount, discount_amount " +
+            "FROM t_order WHERE id >= ? AND id < ? AND status <> 'CANCELLED'";
+    private static final String CHUNK_ITEMS_SQL = "SELECT o.id, o.created_at, g.category_code, i.quantity, i.price " +
+            "FROM t_order o JOIN t_order_item i ON i.order_id = o.id LEFT JOIN goods g ON g.id = i.goods_id " +
+            "WHERE o.id >= ? AND o.id < ? AND o.status <> 'CANCELLED'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderRollupRepository repository;
+    private final GoodsSearchIndex searchIndex;
+    private final int chunkSize;
+    private final int backfillThreads;
+    private final ExecutorService backfillRunner = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "order-rollup-backfill");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean backfillRunning = new AtomicBoolean(false);
+
+    // 以下字段受 this 锁保护
+    private Map<Key, Totals> pending = new HashMap<>();
+    // 回填期间到达的增量，回填结束后扣掉已被扫描结果包含的部分
+    private List<Contribution> duringBackfill;
+
+    public OrderRollups(JdbcTemplate jdbcTemplate,
+                        TransactionTemplate transactionTemplate,
+                        OrderRollupRepository repository,
+                        GoodsSearchIndex searchIndex,
+                        @Value("${analytics.rollup.backfill-chunk-size:5000}") int chunkSize,
+                        @Value("${analytics.rollup.backfill-threads:4}") int backfillThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.repository = repository;
+        this.searchIndex = searchIndex;
+        this.chunkSize = Math.max(chunkSize, 1);
+        this.backfillThreads = Math.max(backfillThreads, 1);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        int sign = sign(event.getFromStatus(), event.getToStatus());
+        if (sign == 0 || event.getCreatedAt() == null) {
+            return;
+        }
+        Contribution c = new Contribution(event.getOrderId(), sign, event.getCreatedAt(), event.getTotalAmount(),
+                event.getDiscountAmount(), event.getLines(), System.nanoTime());
+        synchronized (this) {
+            apply(pending, c, c.sign());
+            if (duringBackfill != null) {
+                duringBackfill.add(c);
+            }
+        }
+    }
+
+    // 只有“是否计入”发生变化的流转才影响汇总
+    private static int sign(String fromStatus, String toStatus) {
+        boolean before = counted(fromStatus);
+        boolean after = counted(toStatus);
+        return before == after ? 0 : (after ? 1 : -1);
+    }
+
+    private static boolean counted(String status) {
+        return status != null && !"CANCELLED".equals(status);
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.rollup.flush-interval-ms:5000}")
+    public void flush() {
+        Map<Key, Totals> taken;
+        synchronized (this) {
+            // 回填替换整表之前不落库，增量留到替换之后
+            if (duringBackfill != null || pending.isEmpty()) {
+                return;
+            }
+            taken = pending;
+            pending = new HashMap<>();
+        }
+        try {
+            upsert(taken);
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                taken.forEach((key, t) -> pending.computeIfAbsent(key, k -> new Totals()).add(t, 1));
+            }
+            System.err.println("订单汇总写入失败，下次重试：" + ex.getMessage());
+        }
+    }
+
+    // 汇总表为空而已有订单时（首次上线）自动回填
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Long rollups = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_rollup", Long.class);
+        Long orders = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t_order", Long.class);
+        if ((rollups == null || rollups == 0) && orders != null && orders > 0) {
+            requestBackfill();
+        }
+    }
+
+    /** 在后台重建全部汇总，已有回填在运行时返回 false */
+    public boolean requestBackfill() {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        backfillRunner.execute(() -> {
+            try {
+                backfill();
+            } catch (RuntimeException ex) {
+                System.err.println("订单汇总回填失败：" + ex.getMessage());
+            } finally {
+                backfillRunning.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isBackfillRunning() {
+        return backfillRunning.get();
+    }
+
+    private void backfill() {
+        long startedAt = System.currentTimeMillis();
+        synchronized (this) {
+            duringBackfill = new ArrayList<>();
+        }
+        try {
+            Map<String, Object> range = jdbcTemplate.queryForMap("SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM t_order");
+            Map<Key, Totals> hours = new HashMap<>();
+            long[] chunkStartedAt = new long[0];
+            long minId = 0;
+            if (range.get("min_id") != null) {
+                minId = ((Number) range.get("min_id")).longValue();
+                long maxId = ((Number) range.get("max_id")).longValue();
+                int chunks = (int) ((maxId - minId) / chunkSize + 1);
+                chunkStartedAt = new long[chunks];
+                scanChunks(minId, chunks, chunkStartedAt, hours);
+            }
+
+            Map<Key, Totals> rebuilt = new HashMap<>(hours);
+            hours.forEach((key, t) -> rebuilt.computeIfAbsent(
+                    new Key(DAY, key.bucketStart().truncatedTo(ChronoUnit.DAYS), key.categoryCode()),
+                    k -> new Totals()).add(t, 1));
+
+            // 替换完成前 flush 不落库，期间到达的增量留在 pending 中
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("DELETE FROM order_rollup");
+                insert(rebuilt);
+            });
+            synchronized (this) {
+                // 扫描某个区块之前就已记下的增量已包含在扫描结果中，从待写增量里扣掉，避免重复计入
+                for (Contribution c : duringBackfill) {
+                    long index = chunkStartedAt.length == 0 || c.orderId() < minId ? -1 : (c.orderId() - minId) / chunkSize;
+                    if (index >= 0 && index < chunkStartedAt.length && c.recordedAt() < chunkStartedAt[(int) index]) {
+                        apply(pending, c, -c.sign());
+                    }
+                }
+                duringBackfill = null;
+            }
+            System.out.println("订单汇总回填完成：" + rebuilt.size() + " 行，耗时 "
+                    + (System.currentTimeMillis() - startedAt) + "ms");
+        } finally {
+            synchronized (this) {
+                duringBackfill = null;
+            }
+        }
+    }
+
+    // 按 id 区间切块，多个线程并行扫描，每块独立汇总后合并
+    private void scanChunks(long minId, int chunks, long[] chunkStartedAt, Map<Key, Totals> into) {
+        ExecutorService pool = Executors.newFixedThreadPool(backfillThreads, r -> {
+            Thread t = new Thread(r, "order-rollup-scan");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<Map<Key, Totals>>> futures = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                int index = i;
+                futures.add(pool.submit(() -> {
+                    chunkStartedAt[index] = System.nanoTime();
+                    long from = minId + (long) index * chunkSize;
+                    return scanChunk(from, from + chunkSize);
+                }));
+            }
+            for (Future<Map<Key, Totals>> future : futures) {
+                future.get().forEach((key, t) -> into.computeIfAbsent(key, k -> new Totals()).add(t, 1));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("订单汇总回填被中断", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause().getMessage(), ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Map<Key, Totals> scanChunk(long fromId, long toId) {
+        Map<Key, Totals> hours = new HashMap<>();
+        RowCallbackHandler orders = rs -> {
+            Totals t = hours.computeIfAbsent(new Key(HOUR, hourOf(rs.getTimestamp(2)), OrderRollup.ALL_CATEGORIES),
+                    k -> new Totals());
+            t.orders++;
+            t.revenue = t.revenue.add(orZero(rs.getBigDecimal(3)));
+            t.discount = t.discount.add(orZero(rs.getBigDecimal(4)));
+        };
+        jdbcTemplate.query(CHUNK_ORDERS_SQL, orders, fromId, toId);
+
+        // 同一订单在同一分类下只计一单
+        Set<String> seen = new HashSet<>();
+        RowCallbackHandler items = rs -> {
+            LocalDateTime hour = hourOf(rs.getTimestamp(2));
+            String category = rs.getString(3);
+            long quantity = rs.getLong(4);
+            BigDecimal amount = orZero(rs.getBigDecimal(5)).multiply(BigDecimal.valueOf(quantity));
+            hours.computeIfAbsent(new Key(HOUR, hour, OrderRollup.ALL_CATEGORIES), k -> new Totals()).items += quantity;
+            if (category == null) {
+                return;
+            }
+            Totals t = hours.computeIfAbsent(new Key(HOUR, hour, category), k -> new Totals());
+            if (seen.add(rs.getLong(1) + "|" + category)) {
+                t.orders++;
+            }
+            t.revenue = t.revenue.add(amount);
+            t.items += quantity;
+        };
+        jdbcTemplate.query(CHUNK_ITEMS_SQL, items, fromId, toId);
+        return hours;
+    }
+
+    // 调用方持有 this 锁
+    private void apply(Map<Key, Totals> target, Contribution c, int sign) {
+        LocalDateTime hour = c.createdAt().truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime day = c.createdAt().truncatedTo(ChronoUnit.DAYS);
+        Totals all = new Totals();
+        all.orders = 1;
+        all.revenue = orZero(c.totalAmount());
+        all.discount = orZero(c.discountAmount());
+        Map<String, Totals> byCategory = new HashMap<>();
+        for (OrderLine line : c.lines()) {
+            all.items += line.quantity();
+            String category = line.goodsId() == null ? null : searchIndex.categoryOf(line.goodsId());
+            if (category == null) {
+                continue;
+            }
+            Totals t = byCategory.computeIfAbsent(category, k -> {
+                Totals fresh = new Totals();
+                fresh.orders = 1;
+                return fresh;
+            });
+            t.revenue = t.revenue.add(orZero(line.amount()));
+            t.items += line.quantity();
+        }
+        for (Key bucket : new Key[]{new Key(HOUR, hour, null), new Key(DAY, day, null)}) {
+            target.computeIfAbsent(new Key(bucket.granularity(), bucket.bucketStart(), OrderRollup.ALL_CATEGORIES),
+                    k -> new Totals()).add(all, sign);
+            byCategory.forEach((category, t) -> target.computeIfAbsent(
+                    new Key(bucket.granularity(), bucket.bucketStart(), category), k -> new Totals()).add(t, sign));
+        }
+    }
+
+    /**
+     * 先查出已存在的行，已有的批量 UPDATE，缺少的批量 INSERT；
+     * 与其他实例同时插入而冲突时逐行重试。
+     */
+    private void upsert(Map<Key, Totals> deltas) {
+        Set<Key> existing = new HashSet<>();
+        Set<LocalDateTime> buckets = new HashSet<>();
+        deltas.keySet().forEach(k -> buckets.add(k.bucketStart()));
+        List<Object> params = new ArrayList<>();
+        buckets.forEach(b -> params.add(Timestamp.valueOf(b)));
+        String in = String.join(", ", Collections.nCopies(buckets.size(), "?"));
+        RowCallbackHandler collect = rs -> existing.add(
+                new Key(rs.getString(1), rs.getTimestamp(2).toLocalDateTime(), rs.getString(3)));
+        jdbcTemplate.query("SELECT granularity, bucket_start, category_code FROM order_rollup " +
+                "WHERE bucket_start IN (" + in + ")", collect, params.toArray());
+
+        List<Object[]> updates = new ArrayList<>();
+        Map<Key, Totals> inserts = new HashMap<>();
+        deltas.forEach((key, t) -> {
+            if (existing.contains(key)) {
+                updates.add(new Object[]{t.orders, t.revenue, t.discount, t.items,
+                        key.granularity(), Timestamp.valueOf(key.bucketStart()), key.categoryCode()});
+            } else {
+                inserts.put(key, t);
+            }
+        });
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+        }
+        if (inserts.isEmpty()) {
+            return;
+        }
+        try {
+            insert(inserts);
+        } catch (DuplicateKeyException ex) {
+            inserts.forEach((key, t) -> {
+                Timestamp bucket = Timestamp.valueOf(key.bucketStart());
+                if (jdbcTemplate.update(UPDATE_SQL, t.orders, t.revenue, t.discount, t.items,
+                        key.granularity(), bucket, key.categoryCode()) == 0) {
+                    jdbcTemplate.update(INSERT_SQL, key.granularity(), bucket, key.categoryCode(),
+                            t.orders, t.revenue, t.discount, t.items);
+                }
+            });
+        }
+    }
+
+    private void insert(Map<Key, Totals> rows) {
+        List<Object[]> args = new ArrayList<>(rows.size());
+        rows.forEach((key, t) -> args.add(new Object[]{key.granularity(), Timestamp.valueOf(key.bucketStart()),
+                key.categoryCode(), t.orders, t.revenue, t.discount, t.items}));
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, args);
+        }
+    }
+
+    /**
+     * [from, to) 内按小时或天的时间序列，categoryCode 为空表示全部订单。
+     * 只读汇总表，没有数据的时间桶不输出。
+     */
+    public List<Map<String, Object>> series(Instant from, Instant to, String granularity, String categoryCode) {
+        ZoneId zone = ZoneId.systemDefault();
+        String category = categoryCode == null || categoryCode.isEmpty() ? OrderRollup.ALL_CATEGORIES : categoryCode;
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (OrderRollup r : repository.findInRange(DAY.equals(granularity) ? DAY : HOUR, category,
+                LocalDateTime.ofInstant(from, zone), LocalDateTime.ofInstant(to, zone))) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("bucketStart", r.getBucketStart().atZone(zone).toInstant().toEpochMilli());
+            m.put("orders", r.getOrderCount());
+            m.put("revenue", r.getRevenue());
+            m.put("discount", r.getDiscount());
+            m.put("itemsSold", r.getItemsSold());
+            list.add(m);
+        }
+        return list;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backfillRunner.shutdownNow();
+        flush();
+    }
+
+    private static LocalDateTime hourOf(Timestamp ts) {
+        return ts.toLocalDateTime().truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+
+    private record Key(String granularity, LocalDateTime bucketStart, String categoryCode) {
+    }
+
+    private record Contribution(Long orderId, int sign, LocalDateTime createdAt, BigDecimal totalAmount,
+                                BigDecimal discountAmount, List<OrderLine> lines, long recordedAt) {
+    }
+
+    private static final class Totals {
+        long orders;
+        BigDecimal revenue = BigDecimal.ZERO;
+        BigDecimal discount = BigDecimal.ZERO;
+        long items;
+
+        void add(Totals other, int sign) {
+            orders += sign * other.orders;
+            revenue = sign > 0 ? revenue.add(other.revenue) : revenue.subtract(other.revenue);
+            discount = sign > 0 ? discount.add(other.discount) : discount.subtract(other.discount);
+            items += sign * other.items;
+        }
+    }
+}
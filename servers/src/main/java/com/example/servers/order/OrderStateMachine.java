@@ -0,0 +1,57 @@
+package com.example.servers.order;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * 订单状态机。
+ * 每次流转是一条 UPDATE ... WHERE id = ? AND user_id = ? AND status = ?，以读到的状态作为期望值，
+ * 并发的两个请求（重复点击支付、取消与支付同时到达）只有一个能更新成功，另一个得到 false。
+ */
+@Component
+public class OrderStateMachine {
+
+    private static final Map<String, Set<String>> TRANSITIONS = Map.of(
+            "PENDING_PAYMENT", Set.of("PENDING_SHIPMENT", "CANCELLED"),
+            "PENDING_SHIPMENT", Set.of("PENDING_RECEIPT", "CANCELLED"),
+            "PENDING_RECEIPT", Set.of("COMPLETED", "CANCELLED"));
+
+    private final OrderRepository orderRepository;
+
+    public OrderStateMachine(OrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+    }
+
+    public static boolean canTransition(String from, String to) {
+        return TRANSITIONS.getOrDefault(from, Set.of()).contains(to);
+    }
+
+    /**
+     * 把 order 从当前状态流转到 to，同时写入支付 / 完成时间。
+     * 成功时返回 true，并把新状态同步到传入的 order（更新后该对象已脱离持久化上下文，不会再次写库）；
+     * 流转不合法或状态已被其他请求改变时返回 false。
+     */
+    public boolean transition(Order order, String to) {
+        String from = order.getStatus();
+        if (!canTransition(from, to)) {
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime paymentTime = "PENDING_SHIPMENT".equals(to) ? now : null;
+        LocalDateTime completedTime = "COMPLETED".equals(to) ? now : null;
+        if (orderRepository.compareAndSetStatus(order.getId(), order.getUserId(), from, to, paymentTime, completedTime) == 0) {
+            return false;
+        }
+        order.setStatus(to);
+        if (paymentTime != null) {
+            order.setPaymentTime(paymentTime);
+        }
+        if (completedTime != null) {
+            order.setCompletedTime(completedTime);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.servers.order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单创建、状态流转或删除后发布。fromStatus 为 null 表示新建，toStatus 为 null 表示删除。
+ * lines 只在新建、取消、删除时携带，其余流转为空列表。
+ */
+public class OrderStatusChangedEvent {
+
+    private final Long orderId;
+    private final String userId;
+    private final String fromStatus;
+    private final String toStatus;
+    private final BigDecimal totalAmount;
+    private final BigDecimal discountAmount;
+    private final LocalDateTime createdAt;
+    private final List<OrderLine> lines;
+
+    public OrderStatusChangedEvent(Long orderId, String userId, String fromStatus, String toStatus, BigDecimal totalAmount,
+                                   BigDecimal discountAmount, LocalDateTime createdAt, List<OrderLine> lines) {
+        this.orderId = orderId;
+        this.userId = userId;
+        this.fromStatus = fromStatus;
+        this.toStatus = toStatus;
+        this.totalAmount = totalAmount;
+        this.discountAmount = discountAmount;
+        this.createdAt = createdAt;
+        this.lines = lines;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getFromStatus() {
+        return fromStatus;
+    }
+
+    public String getToStatus() {
+        return toStatus;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public BigDecimal getDiscountAmount() {
+        return discountAmount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public List<OrderLine> getLines() {
+        return lines;
+    }
+}
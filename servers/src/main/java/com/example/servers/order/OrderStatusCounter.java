@@ -0,0 +1,58 @@
+package com.example.servers.order;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * 每个用户各状态的订单数，供“我的”页面角标使用。
+ * 由 OrderStatusCounters 在订单状态流转的同一事务内增减，读取只需按主键查一行。
+ */
+@Entity
+@Table(name = "order_status_counter")
+public class OrderStatusCounter {
+
+    @Id
+    @Column(length = 128)
+    private String userId;
+
+    @Column(nullable = false)
+    private long pendingPayment;
+
+    @Column(nullable = false)
+    private long pendingShipment;
+
+    @Column(nullable = false)
+    private long pendingReceipt;
+
+    @Column(nullable = false)
+    private long completed;
+
+    @Column(nullable = false)
+    private long cancelled;
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public long getPendingPayment() {
+        return pendingPayment;
+    }
+
+    public long getPendingShipment() {
+        return pendingShipment;
+    }
+
+    public long getPendingReceipt() {
+        return pendingReceipt;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.servers.order;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface OrderStatusCounterRepository extends JpaRepository<OrderStatusCounter, String> {
+
+    // 返回更新行数，为 0 表示该用户还没有计数行
+    @Modifying
+    @Query("UPDATE OrderStatusCounter c SET c.pendingPayment = c.pendingPayment + :pendingPayment, " +
+            "c.pendingShipment = c.pendingShipment + :pendingShipment, " +
+            "c.pendingReceipt = c.pendingReceipt + :pendingReceipt, " +
+            "c.completed = c.completed + :completed, c.cancelled = c.cancelled + :cancelled " +
+            "WHERE c.userId = :userId")
+    int addDeltas(@Param("userId") String userId,
+                  @Param("pendingPayment") long pendingPayment,
+                  @Param("pendingShipment") long pendingShipment,
+                  @Param("pendingReceipt") long pendingReceipt,
+                  @Param("completed") long completed,
+                  @Param("cancelled") long cancelled);
+}
@@ -0,0 +1,147 @@
+package com.example.servers.order;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 维护每个用户的订单状态计数。
+ * 订单事务写库前先调用 ensureRow，在独立事务中按已提交的订单初始化计数行并提交；
+ * 之后以同步监听器处理 OrderStatusChangedEvent，在状态流转的同一事务内对已存在的行做相对 UPDATE，
+ * 订单回滚时计数一起回滚。订单事务中不再出现命中 0 行的 UPDATE 或插入，不会因间隙锁互相死锁。
+ */
+@Component
+public class OrderStatusCounters {
+
+    private static final List<String> STATUSES =
+            List.of("PENDING_PAYMENT", "PENDING_SHIPMENT", "PENDING_RECEIPT", "COMPLETED", "CANCELLED");
+    private static final List<String> KEYS =
+            List.of("pendingPayment", "pendingShipment", "pendingReceipt", "completed", "cancelled");
+
+    private final OrderStatusCounterRepository counterRepository;
+    private final OrderRepository orderRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate seedTransaction;
+    private final int maxKnownUsers;
+
+    // 已确认存在计数行的用户，计数行不会被删除，命中时省去一次查询
+    private final Set<String> knownUsers = ConcurrentHashMap.newKeySet();
+
+    public OrderStatusCounters(OrderStatusCounterRepository counterRepository,
+                               OrderRepository orderRepository,
+                               JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${order.status-counter.known-users:100000}") int maxKnownUsers) {
+        this.counterRepository = counterRepository;
+        this.orderRepository = orderRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.seedTransaction = new TransactionTemplate(transactionManager);
+        this.seedTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxKnownUsers = maxKnownUsers;
+    }
+
+    /**
+     * 保证该用户的计数行已存在并已提交。必须在订单事务写入任何数据之前调用：
+     * 初始化统计的是已提交的订单，本事务随后的流转由监听器叠加。
+     */
+    public void ensureRow(String userId) {
+        if (knownUsers.contains(userId)) {
+            return;
+        }
+        seedTransaction.executeWithoutResult(status -> {
+            if (!counterRepository.existsById(userId)) {
+                insert(userId, countFromOrders(userId));
+            }
+        });
+        if (knownUsers.size() >= maxKnownUsers) {
+            knownUsers.clear();
+        }
+        knownUsers.add(userId);
+    }
+
+    @EventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        long[] d = new long[STATUSES.size()];
+        int from = event.getFromStatus() == null ? -1 : STATUSES.indexOf(event.getFromStatus());
+        int to = event.getToStatus() == null ? -1 : STATUSES.indexOf(event.getToStatus());
+        if (from == to) {
+            return;
+        }
+        if (from >= 0) {
+            d[from]--;
+        }
+        if (to >= 0) {
+            d[to]++;
+        }
+        if (counterRepository.addDeltas(event.getUserId(), d[0], d[1], d[2], d[3], d[4]) == 0) {
+            // 调用方漏掉了 ensureRow；不在订单事务内补行，下次读取时按订单表重新初始化
+            knownUsers.remove(event.getUserId());
+            System.err.println("订单状态计数行不存在，跳过本次增量：userId=" + event.getUserId());
+        }
+    }
+
+    /** 按主键读取计数；历史用户首次读取时从订单表初始化 */
+    public Map<String, Object> get(String userId) {
+        OrderStatusCounter c = counterRepository.findById(userId).orElse(null);
+        if (c == null) {
+            long[] counts = countFromOrders(userId);
+            boolean any = false;
+            for (long n : counts) {
+                any |= n != 0;
+            }
+            // 没有订单的用户不建行
+            if (!any) {
+                return toMap(counts);
+            }
+            knownUsers.remove(userId);
+            ensureRow(userId);
+            c = counterRepository.findById(userId).orElse(null);
+            if (c == null) {
+                return toMap(counts);
+            }
+        }
+        return toMap(new long[]{c.getPendingPayment(), c.getPendingShipment(), c.getPendingReceipt(),
+                c.getCompleted(), c.getCancelled()});
+    }
+
+    private static Map<String, Object> toMap(long[] counts) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        for (int i = 0; i < KEYS.size(); i++) {
+            m.put(KEYS.get(i), counts[i]);
+        }
+        return m;
+    }
+
+    private long[] countFromOrders(String userId) {
+        long[] counts = new long[STATUSES.size()];
+        for (Object[] row : orderRepository.countByStatusForUser(userId)) {
+            int i = STATUSES.indexOf((String) row[0]);
+            if (i >= 0) {
+                counts[i] = ((Number) row[1]).longValue();
+            }
+        }
+        return counts;
+    }
+
+    // 并发的初始化只有一个插入成功，其余遇到主键冲突直接使用已有的行
+    private void insert(String userId, long[] c) {
+        try {
+            jdbcTemplate.update("INSERT INTO order_status_counter (user_id, pending_payment, pending_shipment, " +
+                    "pending_receipt, completed, cancelled) VALUES (?, ?, ?, ?, ?, ?)",
+                    userId, c[0], c[1], c[2], c[3], c[4]);
+        } catch (DuplicateKeyException ex) {
+            // 其他请求已初始化
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.servers.track;
+
+import java.util.Map;
+
+/**
+ * 一批埋点写库成功后由 TrackPipeline 发布，携带本批各事件类型的条数，供仪表盘实时推送。
+ */
+public class TrackBatchWrittenEvent {
+
+    private final Map<String, Long> countsByType;
+
+    public TrackBatchWrittenEvent(Map<String, Long> countsByType) {
+        this.countsByType = Map.copyOf(countsByType);
+    }
+
+    public Map<String, Long> getCountsByType() {
+        return countsByType;
+    }
+}
@@ -1,29 +1,38 @@
 package com.example.servers.track;
 
 import com.example.servers.BaseResponse;
-import com.example.servers.goods.Goods;
-import com.example.servers.goods.GoodsRepository;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 public class TrackController {
 
-    private final TrackEventRepository trackEventRepository;
-    private final GoodsRepository goodsRepository;
+    // 与 track_events.event_type 列宽保持安全距离，避免整批写入失败
+    private static final int MAX_EVENT_LENGTH = 64;
+    private static final int MAX_SESSION_ID_LENGTH = 64;
+    private static final int MAX_BATCH_EVENTS = 200;
+    // 客户端时钟允许的偏差，以及离线缓存事件的最长保留时间
+    private static final Duration MAX_CLOCK_SKEW = Duration.ofMinutes(5);
+    private static final Duration MAX_EVENT_AGE = Duration.ofDays(7);
 
-    public TrackController(TrackEventRepository trackEventRepository,
-                           GoodsRepository goodsRepository) {
-        this.trackEventRepository = trackEventRepository;
-        this.goodsRepository = goodsRepository;
+    private final TrackPipeline trackPipeline;
+
+    public TrackController(TrackPipeline trackPipeline) {
+        this.trackPipeline = trackPipeline;
     }
 
     @PostMapping("/common/trackEvent")
     public BaseResponse<Void> track(@RequestBody TrackRequest request) {
-        if (request == null || request.goodsId == null || request.goodsId.isEmpty() || request.event == null || request.event.isEmpty()) {
+        if (request == null || request.goodsId == null || request.goodsId.isEmpty() || request.event == null || request.event.isEmpty()
+                || request.event.length() > MAX_EVENT_LENGTH) {
             return new BaseResponse<>("400", "参数错误", null);
         }
 
@@ -32,26 +41,65 @@ public class TrackController {
             return new BaseResponse<>("400", "参数错误", null);
         }
 
-        trackEventRepository.save(new TrackEvent(goodsId, request.event, Instant.now()));
-        goodsRepository.findById(goodsId).ifPresent(goods -> updateGoodsStats(goods, request.event));
+        if (!trackPipeline.submit(new TrackRecord(goodsId, request.event, Instant.now()))) {
+            return new BaseResponse<>("503", "埋点队列已满，请稍后重试", null);
+        }
         return BaseResponse.success(null);
     }
 
-    private void updateGoodsStats(Goods goods, String event) {
-        Integer viewCount = goods.getViewCount() == null ? 0 : goods.getViewCount();
-        Integer salesCount = goods.getSalesCount() == null ? 0 : goods.getSalesCount();
-        switch (event) {
-            case "impression":
-            case "click":
-                goods.setViewCount(viewCount + 1);
-                break;
-            case "purchase":
-                goods.setSalesCount(salesCount + 1);
-                break;
-            default:
-                break;
+    /**
+     * 批量上报：一次请求最多 MAX_BATCH_EVENTS 条，逐条校验，
+     * 合法事件作为一个整体进入写库队列，不合法的按下标返回原因。
+     */
+    @PostMapping("/common/trackEvents")
+    public BaseResponse<Map<String, Object>> trackBatch(@RequestBody TrackBatchRequest request) {
+        if (request == null || request.events == null || request.events.isEmpty()) {
+            return new BaseResponse<>("400", "参数错误", null);
+        }
+        if (request.events.size() > MAX_BATCH_EVENTS) {
+            return new BaseResponse<>("400", "单次最多上报" + MAX_BATCH_EVENTS + "条事件", null);
+        }
+        String sessionId = request.sessionId;
+        if (sessionId != null && sessionId.length() > MAX_SESSION_ID_LENGTH) {
+            return new BaseResponse<>("400", "sessionId过长", null);
+        }
+
+        Instant now = Instant.now();
+        List<TrackRecord> records = new ArrayList<>(request.events.size());
+        List<Map<String, Object>> rejected = new ArrayList<>();
+        for (int i = 0; i < request.events.size(); i++) {
+            TrackItem item = request.events.get(i);
+            String reason = null;
+            Long goodsId = null;
+            Instant clientTime = null;
+            if (item == null || item.goodsId == null || item.event == null || item.event.isEmpty()
+                    || item.event.length() > MAX_EVENT_LENGTH) {
+                reason = "参数错误";
+            } else if ((goodsId = parseGoodsId(item.goodsId)) == null) {
+                reason = "商品ID非法";
+            } else if (item.ts != null) {
+                clientTime = Instant.ofEpochMilli(item.ts);
+                if (clientTime.isAfter(now.plus(MAX_CLOCK_SKEW)) || clientTime.isBefore(now.minus(MAX_EVENT_AGE))) {
+                    reason = "时间戳无效";
+                }
+            }
+            if (reason != null) {
+                Map<String, Object> r = new HashMap<>();
+                r.put("index", i);
+                r.put("reason", reason);
+                rejected.add(r);
+                continue;
+            }
+            records.add(new TrackRecord(goodsId, item.event, now, sessionId, clientTime));
         }
-        goodsRepository.save(goods);
+
+        if (!trackPipeline.submitAll(records)) {
+            return new BaseResponse<>("503", "埋点队列已满，请稍后重试", null);
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("accepted", records.size());
+        data.put("rejected", rejected);
+        return BaseResponse.success(data);
     }
 
     static class TrackRequest {
@@ -59,6 +107,18 @@ public class TrackController {
         public String event;
     }
 
+    static class TrackBatchRequest {
+        public String sessionId;
+        public List<TrackItem> events;
+    }
+
+    static class TrackItem {
+        public String goodsId;
+        public String event;
+        // 客户端事件发生时间（毫秒时间戳），可选
+        public Long ts;
+    }
+
     private Long parseGoodsId(String value) {
         try {
             return Long.parseLong(value);
@@ -5,12 +5,16 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 
 import java.time.Instant;
 
 @Entity
-@Table(name = "track_events")
+@Table(name = "track_events", indexes = {
+        @Index(name = "idx_track_events_goods_created", columnList = "goodsId, createdAt"),
+        @Index(name = "idx_track_events_created", columnList = "createdAt")
+})
 public class TrackEvent {
 
     @Id
@@ -26,6 +30,12 @@ public class TrackEvent {
     @Column(nullable = false)
     private Instant createdAt;
 
+    @Column(length = 64)
+    private String sessionId;
+
+    @Column
+    private Instant clientTime;
+
     public TrackEvent() {
     }
 
@@ -62,4 +72,20 @@ public class TrackEvent {
     public void setCreatedAt(Instant createdAt) {
         this.createdAt = createdAt;
     }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public Instant getClientTime() {
+        return clientTime;
+    }
+
+    public void setClientTime(Instant clientTime) {
+        this.clientTime = clientTime;
+    }
 }
@@ -0,0 +1,14 @@
+package com.example.servers.track;
+
+/**
+ * 埋点队列已满时的处理方式。
+ */
+public enum TrackOverflowPolicy {
+
+    /** 等待写库线程腾出空间，超过 block-timeout-ms 后拒绝 */
+    BLOCK,
+    /** 丢弃队列中最旧的事件 */
+    DROP_OLDEST,
+    /** 直接拒绝新事件 */
+    REJECT
+}
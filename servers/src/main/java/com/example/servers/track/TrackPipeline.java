@@ -0,0 +1,330 @@
+package com.example.servers.track;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.example.servers.goods.GoodsCounters;
+import com.example.servers.goods.GoodsTrending;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 埋点异步写库管道。
+ * 接口线程只做校验并把事件放入有界无锁队列，后台单线程按批取出，
+ * 用多行 INSERT 写入 track_events，同一批内的商品浏览 / 销量增量合并后交给 GoodsCounters，
+ * 并计入分钟级汇总和热门商品滑动窗口；每批写库成功后发布 TrackBatchWrittenEvent。
+ * 启用预写日志时，写库线程只把事件追加到本地 TrackWal，由单独的回放线程按批写库，
+ * 数据库变慢或不可用时回放线程退避重试，事件留在磁盘上，既不占满内存队列也不阻塞接口线程，
+ * 且同一时间最多只占用一个数据库连接。
+ */
+@Component
+public class TrackPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(TrackPipeline.class);
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO track_events (goods_id, event_type, created_at, session_id, client_time) VALUES ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GoodsCounters goodsCounters;
+    private final TrackRollups rollups;
+    private final GoodsTrending trending;
+    private final TrackWal wal;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TrackRingBuffer<TrackRecord> ring;
+    private final TrackOverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final long blockTimeoutNanos;
+    private final long idleWaitNanos;
+    private final long maxRetryBackoffNanos;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder walFailures = new LongAdder();
+    private final LongAdder replayRetries = new LongAdder();
+    private final AtomicLong lastBatchSize = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writer;
+    private Thread replayer;
+
+    public TrackPipeline(JdbcTemplate jdbcTemplate,
+                         GoodsCounters goodsCounters,
+                         TrackRollups rollups,
+                         GoodsTrending trending,
+                         TrackWal wal,
+                         ApplicationEventPublisher eventPublisher,
+                         @Value("${track.pipeline.capacity:65536}") int capacity,
+                         @Value("${track.pipeline.batch-size:500}") int batchSize,
+                         @Value("${track.pipeline.overflow-policy:DROP_OLDEST}") TrackOverflowPolicy overflowPolicy,
+                         @Value("${track.pipeline.block-timeout-ms:50}") long blockTimeoutMs,
+                         @Value("${track.pipeline.idle-wait-ms:20}") long idleWaitMs,
+                         @Value("${track.wal.max-retry-backoff-ms:5000}") long maxRetryBackoffMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.goodsCounters = goodsCounters;
+        this.rollups = rollups;
+        this.trending = trending;
+        this.wal = wal;
+        this.eventPublisher = eventPublisher;
+        this.ring = new TrackRingBuffer<>(capacity);
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        this.idleWaitNanos = TimeUnit.MILLISECONDS.toNanos(idleWaitMs);
+        this.maxRetryBackoffNanos = TimeUnit.MILLISECONDS.toNanos(maxRetryBackoffMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::runWriter, "track-writer");
+        writer.setDaemon(true);
+        writer.start();
+        if (wal.isEnabled()) {
+            replayer = new Thread(this::runReplayer, "track-replayer");
+            replayer.setDaemon(true);
+            replayer.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (replayer != null) {
+            LockSupport.unpark(replayer);
+            replayer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /** 按配置的溢出策略入队，事件被拒绝时返回 false */
+    public boolean submit(TrackRecord record) {
+        if (ring.offer(record)) {
+            enqueued.increment();
+            return true;
+        }
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                while (!ring.offer(record)) {
+                    if (ring.poll() != null) {
+                        dropped.increment();
+                    }
+                }
+                enqueued.increment();
+                return true;
+            case BLOCK:
+                long deadline = System.nanoTime() + blockTimeoutNanos;
+                while (System.nanoTime() - deadline < 0) {
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                    if (ring.offer(record)) {
+                        enqueued.increment();
+                        return true;
+                    }
+                }
+                rejected.increment();
+                return false;
+            case REJECT:
+            default:
+                rejected.increment();
+                return false;
+        }
+    }
+
+    /** 批量入队：整批要么全部进入队列，要么全部被拒绝 */
+    public boolean submitAll(List<TrackRecord> records) {
+        if (records.isEmpty()) {
+            return true;
+        }
+        if (records.size() > ring.capacity()) {
+            rejected.add(records.size());
+            return false;
+        }
+        if (ring.offerAll(records)) {
+            enqueued.add(records.size());
+            return true;
+        }
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                while (!ring.offerAll(records)) {
+                    if (ring.poll() != null) {
+                        dropped.increment();
+                    }
+                }
+                enqueued.add(records.size());
+                return true;
+            case BLOCK:
+                long deadline = System.nanoTime() + blockTimeoutNanos;
+                while (System.nanoTime() - deadline < 0) {
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                    if (ring.offerAll(records)) {
+                        enqueued.add(records.size());
+                        return true;
+                    }
+                }
+                rejected.add(records.size());
+                return false;
+            case REJECT:
+            default:
+                rejected.add(records.size());
+                return false;
+        }
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("queueDepth", ring.size());
+        m.put("capacity", ring.capacity());
+        m.put("overflowPolicy", overflowPolicy.name());
+        m.put("enqueued", enqueued.sum());
+        m.put("dropped", dropped.sum());
+        m.put("rejected", rejected.sum());
+        m.put("written", written.sum());
+        m.put("batches", batches.sum());
+        long batchCount = batches.sum();
+        m.put("avgBatchSize", batchCount == 0 ? 0 : written.sum() / batchCount);
+        m.put("lastBatchSize", lastBatchSize.get());
+        m.put("maxBatchSize", maxBatchSize.get());
+        m.put("writeFailures", failures.sum());
+        m.put("walFailures", walFailures.sum());
+        m.put("replayRetries", replayRetries.sum());
+        m.putAll(wal.metrics());
+        return m;
+    }
+
+    private void runWriter() {
+        List<TrackRecord> batch = new ArrayList<>(batchSize);
+        while (running || !ring.isEmpty()) {
+            ring.drainTo(batch, batchSize);
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(idleWaitNanos);
+                continue;
+            }
+            if (wal.isEnabled()) {
+                try {
+                    wal.append(batch);
+                    batch.clear();
+                    continue;
+                } catch (IOException ex) {
+                    // 磁盘不可写时退回直接写库
+                    walFailures.increment();
+                    log.warn("埋点预写日志追加失败，改为直接写库", ex);
+                }
+            }
+            try {
+                write(batch);
+            } catch (RuntimeException ex) {
+                failures.increment();
+                log.error("埋点写库失败，丢弃 {} 条", batch.size(), ex);
+            }
+            batch.clear();
+        }
+    }
+
+    // 从预写日志按批回放到数据库；连接类错误退避后重试同一批，其余错误丢弃该批
+    private void runReplayer() {
+        TrackWal.Batch pending = null;
+        long backoffNanos = idleWaitNanos;
+        while (running) {
+            try {
+                if (pending == null) {
+                    pending = wal.poll(batchSize);
+                }
+                TrackWal.Batch batch = pending;
+                if (!batch.records().isEmpty()) {
+                    try {
+                        write(batch.records());
+                    } catch (TransientDataAccessException | RecoverableDataAccessException
+                             | DataAccessResourceFailureException ex) {
+                        replayRetries.increment();
+                        log.warn("埋点回放写库失败，{}ms 后重试", TimeUnit.NANOSECONDS.toMillis(backoffNanos), ex);
+                        LockSupport.parkNanos(backoffNanos);
+                        backoffNanos = Math.min(backoffNanos * 2, maxRetryBackoffNanos);
+                        continue;
+                    } catch (RuntimeException ex) {
+                        failures.increment();
+                        log.error("埋点写库失败，丢弃 {} 条", batch.records().size(), ex);
+                    }
+                    backoffNanos = idleWaitNanos;
+                }
+                pending = null;
+                wal.ack(batch);
+                if (batch.records().size() < batchSize) {
+                    LockSupport.parkNanos(idleWaitNanos);
+                }
+            } catch (IOException ex) {
+                walFailures.increment();
+                log.error("埋点预写日志读取失败", ex);
+                LockSupport.parkNanos(maxRetryBackoffNanos);
+            }
+        }
+    }
+
+    private void write(List<TrackRecord> batch) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + batch.size() * 10).append(INSERT_PREFIX);
+        Object[] args = new Object[batch.size() * 5];
+        Map<Long, long[]> deltas = new HashMap<>();
+        Map<Long, Long> trend = new HashMap<>();
+        Map<String, Long> byType = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            TrackRecord r = batch.get(i);
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+            args[i * 5] = r.goodsId();
+            args[i * 5 + 1] = r.eventType();
+            args[i * 5 + 2] = Timestamp.from(r.createdAt());
+            args[i * 5 + 3] = r.sessionId();
+            args[i * 5 + 4] = r.clientTime() == null ? null : Timestamp.from(r.clientTime());
+            byType.merge(r.eventType(), 1L, Long::sum);
+            if (trending.counts(r.eventType())) {
+                trend.merge(r.goodsId(), 1L, Long::sum);
+            }
+            switch (r.eventType()) {
+                case "impression":
+                case "click":
+                    deltas.computeIfAbsent(r.goodsId(), k -> new long[2])[0]++;
+                    break;
+                case "purchase":
+                    deltas.computeIfAbsent(r.goodsId(), k -> new long[2])[1]++;
+                    break;
+                default:
+                    break;
+            }
+        }
+        jdbcTemplate.update(sql.toString(), args);
+        written.add(batch.size());
+        batches.increment();
+        lastBatchSize.set(batch.size());
+        maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+
+        rollups.record(batch);
+        deltas.forEach((goodsId, d) -> goodsCounters.increment(goodsId, d[0], d[1]));
+        // 同一批在毫秒级内取出，按最后一条的接收时间计入热度窗口
+        Instant at = batch.get(batch.size() - 1).createdAt();
+        trend.forEach((goodsId, n) -> trending.record(goodsId, n, at));
+        eventPublisher.publishEvent(new TrackBatchWrittenEvent(byType));
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.servers.track;
+
+import java.time.Instant;
+
+/**
+ * 进入写库队列的单条埋点事件。createdAt 为服务端接收时间，clientTime 为客户端上报的发生时间。
+ */
+public record TrackRecord(Long goodsId, String eventType, Instant createdAt, String sessionId, Instant clientTime) {
+
+    public TrackRecord(Long goodsId, String eventType, Instant createdAt) {
+        this(goodsId, eventType, createdAt, null, null);
+    }
+}
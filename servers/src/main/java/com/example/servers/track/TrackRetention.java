@@ -0,0 +1,53 @@
+package com.example.servers.track;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * track_events 原始事件的保留策略：超过保留天数的事件按固定大小分块删除，
+ * 每轮最多删除 max-chunks 块，避免长事务和大范围锁。
+ */
+@Component
+public class TrackRetention {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration retention;
+    private final int chunkSize;
+    private final int maxChunks;
+
+    public TrackRetention(JdbcTemplate jdbcTemplate,
+                          @Value("${track.retention.raw-days:30}") long rawDays,
+                          @Value("${track.retention.chunk-size:1000}") int chunkSize,
+                          @Value("${track.retention.max-chunks:100}") int maxChunks) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retention = Duration.ofDays(rawDays);
+        this.chunkSize = chunkSize;
+        this.maxChunks = maxChunks;
+    }
+
+    @Scheduled(initialDelayString = "${track.retention.interval-ms:600000}",
+            fixedDelayString = "${track.retention.interval-ms:600000}")
+    public void purge() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(retention));
+        for (int i = 0; i < maxChunks; i++) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM track_events WHERE created_at < ? LIMIT " + chunkSize, Long.class, cutoff);
+            if (ids.isEmpty()) {
+                return;
+            }
+            String in = String.join(", ", Collections.nCopies(ids.size(), "?"));
+            jdbcTemplate.update("DELETE FROM track_events WHERE id IN (" + in + ")", ids.toArray());
+            if (ids.size() < chunkSize) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.servers.track;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁环形队列（Vyukov 算法）：每个槽位带一个序号，
+ * 生产者 / 消费者只对 tail / head 做 CAS，不使用锁。
+ * 支持多个生产者；消费者通常只有写库线程，丢弃最旧元素时生产者也会出队。
+ */
+final class TrackRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    // 序号 == pos：槽位空闲，可写入位置 pos；序号 == pos + 1：位置 pos 的元素已可读
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    TrackRingBuffer(int requestedCapacity) {
+        int cap = 1;
+        while (cap < Math.max(requestedCapacity, 2)) {
+            cap <<= 1;
+        }
+        this.capacity = cap;
+        this.mask = cap - 1;
+        this.slots = new AtomicReferenceArray<>(cap);
+        this.sequences = new AtomicLongArray(cap);
+        for (int i = 0; i < cap; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /** 队列已满时返回 false */
+    boolean offer(E element) {
+        while (true) {
+            long pos = tail.get();
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.set(index, element);
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+    }
+
+    /** 一次占用连续的 n 个槽位，要么全部入队，要么一个都不入队 */
+    boolean offerAll(List<? extends E> elements) {
+        int n = elements.size();
+        if (n == 0) {
+            return true;
+        }
+        if (n > capacity) {
+            return false;
+        }
+        outer:
+        while (true) {
+            long pos = tail.get();
+            for (int i = 0; i < n; i++) {
+                long diff = sequences.get((int) ((pos + i) & mask)) - (pos + i);
+                if (diff < 0) {
+                    return false;
+                }
+                if (diff > 0) {
+                    continue outer;
+                }
+            }
+            // 空闲槽位在被 tail 越过之前不会被占用，CAS 成功即独占这 n 个位置
+            if (tail.compareAndSet(pos, pos + n)) {
+                for (int i = 0; i < n; i++) {
+                    int index = (int) ((pos + i) & mask);
+                    slots.set(index, elements.get(i));
+                    sequences.set(index, pos + i + 1);
+                }
+                return true;
+            }
+        }
+    }
+
+    /** 队列为空（或队首元素尚未写完）时返回 null */
+    E poll() {
+        while (true) {
+            long pos = head.get();
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E element = slots.get(index);
+                    slots.set(index, null);
+                    sequences.set(index, pos + capacity);
+                    return element;
+                }
+            } else if (diff < 0) {
+                return null;
+            }
+        }
+    }
+
+    int drainTo(Collection<? super E> sink, int max) {
+        int drained = 0;
+        while (drained < max) {
+            E element = poll();
+            if (element == null) {
+                break;
+            }
+            sink.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.servers.track;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import java.time.Instant;
+
+/**
+ * 埋点汇总：某个时间桶内某商品某类事件的次数。
+ * granularity 为 MINUTE / HOUR / DAY，每条原始事件只会计入其中一行，
+ * 旧的分钟桶压缩为小时桶、旧的小时桶压缩为天桶后原行删除。
+ */
+@Entity
+@Table(name = "track_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_track_rollup_bucket",
+                columnNames = {"granularity", "bucketStart", "goodsId", "eventType"}),
+        indexes = @Index(name = "idx_track_rollup_granularity_bucket", columnList = "granularity, bucketStart"))
+public class TrackRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 8)
+    private String granularity;
+
+    @Column(nullable = false)
+    private Instant bucketStart;
+
+    @Column(nullable = false)
+    private Long goodsId;
+
+    @Column(nullable = false, length = 64)
+    private String eventType;
+
+    @Column(nullable = false)
+    private Long eventCount;
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+
+    public Instant getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(Instant bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public Long getGoodsId() {
+        return goodsId;
+    }
+
+    public void setGoodsId(Long goodsId) {
+        this.goodsId = goodsId;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public Long getEventCount() {
+        return eventCount;
+    }
+
+    public void setEventCount(Long eventCount) {
+        this.eventCount = eventCount;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.servers.track;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface TrackRollupRepository extends JpaRepository<TrackRollup, Long> {
+
+    // 按桶起始时间筛选，goodsId / eventType 为空表示不限
+    @Query("SELECT r FROM TrackRollup r WHERE r.bucketStart >= :from AND r.bucketStart < :to " +
+            "AND (:goodsId IS NULL OR r.goodsId = :goodsId) AND (:eventType IS NULL OR r.eventType = :eventType)")
+    List<TrackRollup> findInRange(@Param("from") Instant from,
+                                  @Param("to") Instant to,
+                                  @Param("goodsId") Long goodsId,
+                                  @Param("eventType") String eventType);
+
+    @Query("SELECT r.goodsId, SUM(r.eventCount) FROM TrackRollup r " +
+            "WHERE r.eventType = :eventType AND r.bucketStart >= :from AND r.bucketStart < :to " +
+            "GROUP BY r.goodsId ORDER BY SUM(r.eventCount) DESC")
+    List<Object[]> topGoods(@Param("eventType") String eventType,
+                            @Param("from") Instant from,
+                            @Param("to") Instant to,
+                            Pageable pageable);
+}
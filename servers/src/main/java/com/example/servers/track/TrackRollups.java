@@ -0,0 +1,241 @@
+package com.example.servers.track;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 埋点的分钟 / 小时 / 天汇总。
+ * 写库线程每写入一批原始事件就在内存中按（分钟, 商品, 事件类型）累加，
+ * 定时 upsert 到 track_rollup；压缩任务把超过保留期的分钟桶合并为小时桶、
+ * 小时桶合并为天桶（UTC），合并与删除在同一事务中完成，保证每条事件只计入一行。
+ */
+@Component
+public class TrackRollups {
+
+    private static final Logger log = LoggerFactory.getLogger(TrackRollups.class);
+
+    public static final String MINUTE = "MINUTE";
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+
+    private static final String UPDATE_SQL = "UPDATE track_rollup SET event_count = event_count + ? " +
+            "WHERE granularity = ? AND bucket_start = ? AND goods_id = ? AND event_type = ?";
+    private static final String INSERT_SQL = "INSERT INTO track_rollup " +
+            "(granularity, bucket_start, goods_id, event_type, event_count) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TrackRollupRepository repository;
+    private final Duration minuteTtl;
+    private final Duration hourTtl;
+    private final Map<Key, AtomicLong> pending = new ConcurrentHashMap<>();
+
+    public TrackRollups(JdbcTemplate jdbcTemplate,
+                        TransactionTemplate transactionTemplate,
+                        TrackRollupRepository repository,
+                        @Value("${track.rollup.minute-ttl-hours:24}") long minuteTtlHours,
+                        @Value("${track.rollup.hour-ttl-days:30}") long hourTtlDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.repository = repository;
+        this.minuteTtl = Duration.ofHours(minuteTtlHours);
+        this.hourTtl = Duration.ofDays(hourTtlDays);
+    }
+
+    // 写库线程在原始事件写入成功后调用
+    void record(List<TrackRecord> batch) {
+        Map<Key, Long> counts = new HashMap<>();
+        for (TrackRecord r : batch) {
+            counts.merge(new Key(r.createdAt().truncatedTo(ChronoUnit.MINUTES), r.goodsId(), r.eventType()), 1L, Long::sum);
+        }
+        counts.forEach(this::addPending);
+    }
+
+    @Scheduled(fixedDelayString = "${track.rollup.flush-interval-ms:10000}")
+    @PreDestroy
+    public synchronized void flush() {
+        Map<Key, Long> taken = new HashMap<>();
+        for (Key key : new ArrayList<>(pending.keySet())) {
+            AtomicLong counter = pending.get(key);
+            long n = counter == null ? 0 : counter.getAndSet(0);
+            if (n > 0) {
+                taken.put(key, n);
+            }
+            // 与 addPending 的 compute 互斥，不会丢失并发累加
+            pending.computeIfPresent(key, (k, c) -> c.get() == 0 ? null : c);
+        }
+        if (taken.isEmpty()) {
+            return;
+        }
+        try {
+            upsert(MINUTE, taken);
+        } catch (RuntimeException ex) {
+            taken.forEach(this::addPending);
+            log.warn("埋点汇总写入失败，下次重试", ex);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${track.rollup.compact-interval-ms:300000}",
+            fixedDelayString = "${track.rollup.compact-interval-ms:300000}")
+    public synchronized void compact() {
+        Instant now = Instant.now();
+        compactLevel(MINUTE, HOUR, ChronoUnit.HOURS, now.minus(minuteTtl).truncatedTo(ChronoUnit.HOURS));
+        compactLevel(HOUR, DAY, ChronoUnit.DAYS, now.minus(hourTtl).truncatedTo(ChronoUnit.DAYS));
+    }
+
+    // 每次处理最旧的一个目标桶，一个桶一个事务
+    private void compactLevel(String source, String target, ChronoUnit unit, Instant cutoff) {
+        while (true) {
+            Timestamp oldest = jdbcTemplate.queryForObject(
+                    "SELECT MIN(bucket_start) FROM track_rollup WHERE granularity = ?", Timestamp.class, source);
+            if (oldest == null || !oldest.toInstant().isBefore(cutoff)) {
+                return;
+            }
+            Instant start = oldest.toInstant().truncatedTo(unit);
+            Instant end = start.plus(1, unit);
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Key, Long> sums = new HashMap<>();
+                jdbcTemplate.query("SELECT goods_id, event_type, SUM(event_count) FROM track_rollup " +
+                                "WHERE granularity = ? AND bucket_start >= ? AND bucket_start < ? GROUP BY goods_id, event_type",
+                        rs -> {
+                            sums.put(new Key(start, rs.getLong(1), rs.getString(2)), rs.getLong(3));
+                        },
+                        source, Timestamp.from(start), Timestamp.from(end));
+                upsert(target, sums);
+                jdbcTemplate.update("DELETE FROM track_rollup WHERE granularity = ? AND bucket_start >= ? AND bucket_start < ?",
+                        source, Timestamp.from(start), Timestamp.from(end));
+            });
+        }
+    }
+
+    /**
+     * 先查出已存在的行，已有的批量 UPDATE，缺少的批量 INSERT；
+     * 与其他实例同时插入而冲突时逐行重试。
+     */
+    private void upsert(String granularity, Map<Key, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        Set<Instant> buckets = new HashSet<>();
+        counts.keySet().forEach(k -> buckets.add(k.bucketStart()));
+        Set<Key> existing = new HashSet<>();
+        List<Object> params = new ArrayList<>();
+        params.add(granularity);
+        buckets.forEach(b -> params.add(Timestamp.from(b)));
+        String in = String.join(", ", Collections.nCopies(buckets.size(), "?"));
+        jdbcTemplate.query("SELECT bucket_start, goods_id, event_type FROM track_rollup " +
+                        "WHERE granularity = ? AND bucket_start IN (" + in + ")",
+                rs -> {
+                    existing.add(new Key(rs.getTimestamp(1).toInstant(), rs.getLong(2), rs.getString(3)));
+                },
+                params.toArray());
+
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        counts.forEach((key, n) -> {
+            Timestamp bucket = Timestamp.from(key.bucketStart());
+            if (existing.contains(key)) {
+                updates.add(new Object[]{n, granularity, bucket, key.goodsId(), key.eventType()});
+            } else {
+                inserts.add(new Object[]{granularity, bucket, key.goodsId(), key.eventType(), n});
+            }
+        });
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+        }
+        if (inserts.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+        } catch (DuplicateKeyException ex) {
+            for (Object[] row : inserts) {
+                Object[] update = {row[4], row[0], row[1], row[2], row[3]};
+                if (jdbcTemplate.update(UPDATE_SQL, update) == 0) {
+                    jdbcTemplate.update(INSERT_SQL, row);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按 granularity 重新分桶的时间序列；比请求粒度更粗的汇总行保留在自己的桶上。
+     * 只读汇总表，不扫描原始事件。
+     */
+    public List<Map<String, Object>> series(Instant from, Instant to, Long goodsId, String eventType, String granularity) {
+        ChronoUnit unit = unitOf(granularity);
+        Map<Instant, Map<String, Long>> buckets = new TreeMap<>();
+        for (TrackRollup r : repository.findInRange(from, to, goodsId, eventType)) {
+            ChronoUnit rowUnit = unitOf(r.getGranularity());
+            Instant bucket = rowUnit.getDuration().compareTo(unit.getDuration()) > 0
+                    ? r.getBucketStart()
+                    : r.getBucketStart().truncatedTo(unit);
+            buckets.computeIfAbsent(bucket, k -> new TreeMap<>()).merge(r.getEventType(), r.getEventCount(), Long::sum);
+        }
+        List<Map<String, Object>> list = new ArrayList<>();
+        buckets.forEach((bucket, byType) -> byType.forEach((type, count) -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("bucketStart", bucket.toEpochMilli());
+            m.put("eventType", type);
+            m.put("count", count);
+            list.add(m);
+        }));
+        return list;
+    }
+
+    public List<Map<String, Object>> topGoods(String eventType, Instant from, Instant to, int limit) {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Object[] row : repository.topGoods(eventType, from, to, PageRequest.of(0, limit))) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("goodsId", row[0]);
+            m.put("count", row[1]);
+            list.add(m);
+        }
+        return list;
+    }
+
+    private void addPending(Key key, long n) {
+        pending.compute(key, (k, c) -> {
+            AtomicLong counter = c == null ? new AtomicLong() : c;
+            counter.addAndGet(n);
+            return counter;
+        });
+    }
+
+    private static ChronoUnit unitOf(String granularity) {
+        if (DAY.equals(granularity)) {
+            return ChronoUnit.DAYS;
+        }
+        if (HOUR.equals(granularity)) {
+            return ChronoUnit.HOURS;
+        }
+        return ChronoUnit.MINUTES;
+    }
+
+    private record Key(Instant bucketStart, Long goodsId, String eventType) {
+    }
+}
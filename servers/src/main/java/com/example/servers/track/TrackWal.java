@@ -0,0 +1,397 @@
+package com.example.servers.track;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 埋点本地预写日志。
+ * 写库线程把事件追加到内存映射的定长段文件，每条记录为 [长度][CRC32C][内容]，
+ * 回放线程按顺序读出后写库，成功后把确认位置原子写入 track.ack，并删除已确认的段。
+ * 数据库变慢时事件堆积在磁盘上而不是内存队列里；进程崩溃后从确认位置继续回放（至少一次）。
+ * 追加只由写库线程调用，poll / ack 只由回放线程调用。
+ * 目录必须由单个进程独占：启动时对 track.lock 加文件锁，锁已被其他进程（或同一 JVM 中的另一个上下文）持有时
+ * 不启用预写日志，埋点退回直接写库，避免两个实例互相把对方正在追加的段当作已封存的段回放并删除。
+ * 未配置目录时同样退回直接写库。
+ */
+@Component
+public class TrackWal {
+
+    private static final Logger log = LoggerFactory.getLogger(TrackWal.class);
+
+    private static final String SEGMENT_PREFIX = "track-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String ACK_FILE = "track.ack";
+    private static final String LOCK_FILE = "track.lock";
+    private static final int HEADER_BYTES = 8;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+    // 本 JVM 中已加锁的目录
+    private static final Set<Path> LOCKED_DIRS = ConcurrentHashMap.newKeySet();
+
+    private final boolean configured;
+    private final Path dir;
+    private final int segmentBytes;
+    private final int maxSegments;
+
+    // 磁盘上现存的段序号
+    private final ConcurrentSkipListSet<Long> segments = new ConcurrentSkipListSet<>();
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder corruptSegments = new LongAdder();
+    private final LongAdder droppedSegments = new LongAdder();
+
+    // 取得目录锁后才为 true
+    private volatile boolean enabled;
+    private FileChannel lockChannel;
+    private FileLock lock;
+
+    // 写库线程：当前追加的段
+    private MappedByteBuffer active;
+    // 已追加完成的末尾位置，回放线程只读到这里
+    private volatile Position head;
+
+    // 回放线程：当前读取的段
+    private MappedByteBuffer reading;
+    private long readSeq;
+    private int readOffset;
+    private volatile Position acked;
+
+    public TrackWal(@Value("${track.wal.enabled:true}") boolean enabled,
+                    @Value("${track.wal.dir:}") String dir,
+                    @Value("${track.wal.segment-bytes:16777216}") int segmentBytes,
+                    @Value("${track.wal.max-segments:64}") int maxSegments) {
+        this.configured = enabled;
+        this.dir = enabled && dir != null && !dir.isBlank() ? Paths.get(dir) : null;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = Math.max(maxSegments, 2);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!configured) {
+            return;
+        }
+        if (dir == null) {
+            log.warn("track.wal.enabled=true 但未配置实例独享的 track.wal.dir，埋点预写日志不启用，改为直接写库");
+            return;
+        }
+        Files.createDirectories(dir);
+        if (!tryLock()) {
+            log.warn("埋点预写日志目录 {} 已被其他进程占用，本实例改为直接写库", dir);
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                Long seq = seqOf(file);
+                if (seq != null) {
+                    segments.add(seq);
+                }
+            }
+        }
+        Position ack = readAck();
+        for (Long seq : segments.headSet(ack.seq())) {
+            deleteSegment(seq);
+        }
+        acked = ack;
+        readSeq = ack.seq();
+        readOffset = ack.offset();
+        // 每次启动都从新段开始追加，上次未写满的段按已封存处理
+        long next = Math.max(segments.isEmpty() ? 0L : segments.last(), ack.seq()) + 1;
+        openSegment(next);
+        if (!segments.headSet(next).isEmpty()) {
+            log.info("埋点预写日志待回放段数：{}", segments.headSet(next).size());
+        }
+        enabled = true;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        enabled = false;
+        if (active != null) {
+            active.force();
+            active = null;
+        }
+        reading = null;
+        if (lock != null) {
+            lock.release();
+            lock = null;
+        }
+        if (lockChannel != null) {
+            lockChannel.close();
+            lockChannel = null;
+            LOCKED_DIRS.remove(dir.toAbsolutePath().normalize());
+        }
+    }
+
+    /** 追加一批事件，写满当前段时换新段。只由写库线程调用。 */
+    public void append(List<TrackRecord> records) throws IOException {
+        for (TrackRecord r : records) {
+            byte[] payload = encode(r);
+            if (active.remaining() < HEADER_BYTES + payload.length) {
+                roll();
+            }
+            active.putInt(payload.length);
+            active.putInt(crc(payload));
+            active.put(payload);
+        }
+        appended.add(records.size());
+        head = new Position(head.seq(), active.position());
+    }
+
+    /**
+     * 从上次读到的位置起最多取 max 条。返回的 end 是这批之后的位置，写库成功后交给 ack。
+     * 只由回放线程调用。
+     */
+    public Batch poll(int max) throws IOException {
+        List<TrackRecord> records = new ArrayList<>();
+        while (records.size() < max) {
+            Position h = head;
+            if (reading == null) {
+                if (!segments.contains(readSeq)) {
+                    // 段已被删除（超出磁盘上限）或从未存在，跳到下一个现存的段
+                    Long next = segments.higher(readSeq);
+                    if (next == null || next > h.seq()) {
+                        break;
+                    }
+                    readSeq = next;
+                    readOffset = 0;
+                    continue;
+                }
+                try (FileChannel channel = FileChannel.open(segmentPath(readSeq), StandardOpenOption.READ)) {
+                    reading = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            }
+            boolean isActive = readSeq == h.seq();
+            int limit = isActive ? h.offset() : reading.capacity();
+            TrackRecord r = readAt(reading, readOffset, limit);
+            if (r == null) {
+                if (isActive) {
+                    break;
+                }
+                if (readOffset + HEADER_BYTES <= limit && reading.getInt(readOffset) != 0) {
+                    // 崩溃时写了一半的记录或磁盘损坏，丢弃该段剩余部分
+                    corruptSegments.increment();
+                    log.warn("埋点预写日志段 {} 在偏移 {} 处校验失败，跳过剩余部分", readSeq, readOffset);
+                }
+                reading = null;
+                readSeq++;
+                readOffset = 0;
+                continue;
+            }
+            records.add(r);
+            readOffset += HEADER_BYTES + reading.getInt(readOffset);
+        }
+        return new Batch(records, new Position(readSeq, readOffset));
+    }
+
+    /** 确认 end 之前的记录已写库，持久化确认位置并删除之前的段。只由回放线程调用。 */
+    public void ack(Batch batch) throws IOException {
+        Position end = batch.end();
+        if (end.equals(acked)) {
+            return;
+        }
+        Path tmp = dir.resolve(ACK_FILE + ".tmp");
+        ByteBuffer buf = ByteBuffer.allocate(12).putLong(end.seq()).putInt(end.offset());
+        Files.write(tmp, buf.array());
+        Files.move(tmp, dir.resolve(ACK_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        acked = end;
+        replayed.add(batch.records().size());
+        for (Long seq : segments.headSet(end.seq())) {
+            deleteSegment(seq);
+        }
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("walEnabled", enabled);
+        if (!enabled) {
+            m.put("walLockedByOther", configured && lock == null);
+            return m;
+        }
+        Position h = head;
+        Position a = acked;
+        m.put("walSegments", segments.size());
+        m.put("walAppended", appended.sum());
+        m.put("walReplayed", replayed.sum());
+        // 未回放的段数（含当前段）
+        m.put("walBacklogSegments", h.seq() - a.seq() + 1);
+        m.put("walCorruptSegments", corruptSegments.sum());
+        m.put("walDroppedSegments", droppedSegments.sum());
+        return m;
+    }
+
+    // 同一 JVM 内先按目录去重：POSIX 下关闭同一文件的任意描述符会释放本进程在该文件上的全部锁，
+    // 因此不能为了探测而再打开一次锁文件
+    private boolean tryLock() throws IOException {
+        Path key = dir.toAbsolutePath().normalize();
+        if (!LOCKED_DIRS.add(key)) {
+            return false;
+        }
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(dir.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock acquired = channel.tryLock();
+            if (acquired != null) {
+                lockChannel = channel;
+                lock = acquired;
+                return true;
+            }
+        } catch (OverlappingFileLockException ex) {
+            // 按目录去重后不应出现，与锁被占用同样处理
+        } catch (IOException ex) {
+            LOCKED_DIRS.remove(key);
+            if (channel != null) {
+                channel.close();
+            }
+            throw ex;
+        }
+        LOCKED_DIRS.remove(key);
+        channel.close();
+        return false;
+    }
+
+    private void roll() throws IOException {
+        active.force();
+        openSegment(head.seq() + 1);
+        // 超出磁盘上限时丢弃最旧的段，保证数据库长时间不可用时不会写满磁盘
+        while (segments.size() > maxSegments) {
+            Long oldest = segments.first();
+            deleteSegment(oldest);
+            droppedSegments.increment();
+            log.warn("埋点预写日志超过 {} 段，丢弃最旧的段 {}", maxSegments, oldest);
+        }
+    }
+
+    private void openSegment(long seq) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(seq), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            active = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        segments.add(seq);
+        head = new Position(seq, 0);
+    }
+
+    private void deleteSegment(long seq) throws IOException {
+        segments.remove(seq);
+        Files.deleteIfExists(segmentPath(seq));
+    }
+
+    private Position readAck() throws IOException {
+        Path file = dir.resolve(ACK_FILE);
+        if (!Files.exists(file)) {
+            return new Position(segments.isEmpty() ? 0L : segments.first(), 0);
+        }
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        return new Position(buf.getLong(), buf.getInt());
+    }
+
+    private Path segmentPath(long seq) {
+        return dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX));
+    }
+
+    private static Long seqOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    // 长度为 0（未写入）、超出 limit 或校验失败时返回 null
+    private static TrackRecord readAt(MappedByteBuffer buffer, int offset, int limit) {
+        if (offset + HEADER_BYTES > limit) {
+            return null;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || offset + HEADER_BYTES + length > limit) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(offset + HEADER_BYTES, payload);
+        if (crc(payload) != buffer.getInt(offset + 4)) {
+            return null;
+        }
+        return decode(ByteBuffer.wrap(payload));
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encode(TrackRecord r) {
+        byte[] eventType = r.eventType().getBytes(StandardCharsets.UTF_8);
+        byte[] sessionId = r.sessionId() == null ? null : r.sessionId().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(24 + 2 + eventType.length + 2 + (sessionId == null ? 0 : sessionId.length));
+        buf.putLong(r.goodsId());
+        buf.putLong(r.createdAt().toEpochMilli());
+        buf.putLong(r.clientTime() == null ? NULL_TIME : r.clientTime().toEpochMilli());
+        buf.putShort((short) eventType.length).put(eventType);
+        if (sessionId == null) {
+            buf.putShort((short) -1);
+        } else {
+            buf.putShort((short) sessionId.length).put(sessionId);
+        }
+        return buf.array();
+    }
+
+    private static TrackRecord decode(ByteBuffer buf) {
+        long goodsId = buf.getLong();
+        Instant createdAt = Instant.ofEpochMilli(buf.getLong());
+        long clientTime = buf.getLong();
+        String eventType = readString(buf);
+        String sessionId = readString(buf);
+        return new TrackRecord(goodsId, eventType, createdAt, sessionId,
+                clientTime == NULL_TIME ? null : Instant.ofEpochMilli(clientTime));
+    }
+
+    private static String readString(ByteBuffer buf) {
+        short length = buf.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public record Batch(List<TrackRecord> records, Position end) {
+    }
+
+    public record Position(long seq, int offset) {
+    }
+}
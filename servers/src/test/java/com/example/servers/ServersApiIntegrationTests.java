@@ -28,6 +28,19 @@ class ServersApiIntegrationTests {
         assertThat(res.getStatusCode().is2xxSuccessful()).isTrue();
     }
 
+    @Test
+    void home_queryHomePageInfo_notModified() throws Exception {
+        ResponseEntity<String> first = new org.springframework.web.client.RestTemplate()
+                .postForEntity(url("/home/queryHomePageInfo"), null, String.class);
+        String etag = first.getHeaders().getETag();
+        assertThat(etag).isNotNull();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<String> res = new org.springframework.web.client.RestTemplate().exchange(url("/home/queryHomePageInfo"),
+                HttpMethod.POST, new HttpEntity<>(null, headers), String.class);
+        assertThat(res.getStatusCode().value()).isEqualTo(304);
+    }
+
     @Test
     void category_list() throws Exception {
         ResponseEntity<String> res = new org.springframework.web.client.RestTemplate()
@@ -57,6 +70,74 @@ class ServersApiIntegrationTests {
         assertThat(res.getStatusCode().is2xxSuccessful()).isTrue();
     }
 
+    @Test
+    void common_searchGoods() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String body = "{\"keyword\":\"手机\",\"pageNo\":1,\"pageSize\":10,\"sort\":\"salesDesc\"}";
+        HttpEntity<String> entity = new HttpEntity<>(body, headers);
+        ResponseEntity<String> res = new org.springframework.web.client.RestTemplate().exchange(url("/common/searchGoods"),
+                HttpMethod.POST, entity, String.class);
+        assertThat(res.getStatusCode().is2xxSuccessful()).isTrue();
+    }
+
+    @Test
+    void common_queryTrendingGoods() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String body = "{\"code\":\"0101\",\"pageSize\":10}";
+        HttpEntity<String> entity = new HttpEntity<>(body, headers);
+        ResponseEntity<String> res = new org.springframework.web.client.RestTemplate().exchange(url("/common/queryTrendingGoods"),
+                HttpMethod.POST, entity, String.class);
+        assertThat(res.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(res.getBody()).contains("\"windowMinutes\":15");
+    }
+
+    @Test
+    void common_trackEvents() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String body = "{\"sessionId\":\"s-1\",\"events\":[{\"goodsId\":\"1\",\"event\":\"impression\"}," +
+                "{\"goodsId\":\"abc\",\"event\":\"click\"}]}";
+        HttpEntity<String> entity = new HttpEntity<>(body, headers);
+        ResponseEntity<String> res = new org.springframework.web.client.RestTemplate().exchange(url("/common/trackEvents"),
+                HttpMethod.POST, entity, String.class);
+        assertThat(res.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(res.getBody()).contains("\"accepted\":1");
+    }
+
+    @Test
+    void order_list_summary() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String body = "{\"userId\":\"guest\",\"page\":0,\"size\":10,\"summary\":true}";
+        HttpEntity<String> entity = new HttpEntity<>(body, headers);
+        ResponseEntity<String> res = new org.springframework.web.client.RestTemplate().exchange(url("/order/list"),
+                HttpMethod.POST, entity, String.class);
+        assertThat(res.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(res.getBody()).contains("\"orderList\"");
+    }
+
+    @Test
+    void order_list_cursor() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String body = "{\"userId\":\"guest\",\"size\":10,\"cursor\":\"\",\"withTotal\":false}";
+        HttpEntity<String> entity = new HttpEntity<>(body, headers);
+        ResponseEntity<String> res = new org.springframework.web.client.RestTemplate().exchange(url("/order/list"),
+                HttpMethod.POST, entity, String.class);
+        assertThat(res.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(res.getBody()).contains("\"hasMore\"").doesNotContain("totalElements");
+    }
+
+    @Test
+    void order_statusCounts() throws Exception {
+        ResponseEntity<String> res = new org.springframework.web.client.RestTemplate()
+                .postForEntity(url("/order/statusCounts"), null, String.class);
+        assertThat(res.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(res.getBody()).contains("\"pendingPayment\"");
+    }
+
     @Test
     void mine_queryMineInfo() throws Exception {
         ResponseEntity<String> res = new org.springframework.web.client.RestTemplate()
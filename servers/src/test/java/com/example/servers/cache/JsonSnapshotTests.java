@@ -0,0 +1,21 @@
+package com.example.servers.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonSnapshotTests {
+
+    @Test
+    void gzipFollowsAcceptEncodingQValues() {
+        assertThat(JsonSnapshot.acceptsGzip("gzip, deflate, br")).isTrue();
+        assertThat(JsonSnapshot.acceptsGzip("br;q=1.0, gzip;q=0.8")).isTrue();
+        assertThat(JsonSnapshot.acceptsGzip("*")).isTrue();
+
+        assertThat(JsonSnapshot.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(JsonSnapshot.acceptsGzip("gzip; q=0.000, *;q=1")).isFalse();
+        assertThat(JsonSnapshot.acceptsGzip("*;q=0")).isFalse();
+        assertThat(JsonSnapshot.acceptsGzip("identity")).isFalse();
+        assertThat(JsonSnapshot.acceptsGzip(null)).isFalse();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.servers.goods;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class GoodsListPagingIntegrationTests {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String CATEGORY = "paging-test";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private GoodsRepository goodsRepository;
+
+    private List<Goods> saved;
+
+    @BeforeEach
+    void seed() {
+        goodsRepository.deleteAll(goodsRepository.findAll().stream()
+                .filter(g -> CATEGORY.equals(g.getCategoryCode())).toList());
+        saved = new ArrayList<>();
+        // 数值排序：字符串比较时 "1000" < "250.5" < "5" < "99"
+        for (String price : new String[]{"¥88", "99", "250.5", "1000", "99", "1000", "5", "abc"}) {
+            Goods g = new Goods();
+            g.setCategoryCode(CATEGORY);
+            g.setType("1");
+            g.setDescription("paging " + price);
+            g.setPrice(price);
+            saved.add(goodsRepository.save(g));
+        }
+    }
+
+    @Test
+    void priceAscCursorPagesFollowNumericPriceWithoutGapsOrRepeats() throws Exception {
+        List<Long> expected = saved.stream()
+                .sorted(Comparator.comparingLong(Goods::getPriceFen)
+                        .thenComparing(Comparator.comparingLong(Goods::getId).reversed()))
+                .map(Goods::getId).toList();
+
+        List<JsonNode> rows = pageThrough("\"sort\":\"priceAsc\"");
+
+        assertThat(rows.stream().map(r -> r.get("id").asLong()).toList()).isEqualTo(expected);
+        assertThat(rows.stream().map(r -> r.get("priceFen").asLong()).toList())
+                .containsExactly(0L, 500L, 8800L, 9900L, 9900L, 25050L, 100000L, 100000L);
+    }
+
+    @Test
+    void priceDescCursorPagesWithPriceFilter() throws Exception {
+        List<JsonNode> rows = pageThrough("\"sort\":\"priceDesc\",\"minPrice\":\"90\",\"maxPrice\":\"1000\"");
+
+        assertThat(rows.stream().map(r -> r.get("priceFen").asLong()).toList())
+                .containsExactly(100000L, 100000L, 25050L, 9900L, 9900L);
+        assertThat(rows.stream().map(r -> r.get("id").asLong()).distinct()).hasSize(5);
+    }
+
+    @Test
+    void tamperedCursorAndBadPriceAreRejected() throws Exception {
+        // createdAt 无法解析（DateTimeParseException）
+        String raw = "NEW_ARRIVAL|C|not-a-time|1";
+        String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        JsonNode res = post("{\"code\":\"" + CATEGORY + "\",\"sort\":\"newArrival\",\"pageSize\":3,\"cursor\":\"" + cursor + "\"}");
+        assertThat(res.get("code").asText()).isEqualTo("400");
+
+        JsonNode badPrice = post("{\"code\":\"" + CATEGORY + "\",\"sort\":\"priceAsc\",\"minPrice\":\"abc\"}");
+        assertThat(badPrice.get("code").asText()).isEqualTo("400");
+    }
+
+    private List<JsonNode> pageThrough(String sortFields) throws Exception {
+        List<JsonNode> rows = new ArrayList<>();
+        String cursor = "";
+        for (int page = 0; page < 10; page++) {
+            JsonNode res = post("{\"code\":\"" + CATEGORY + "\"," + sortFields
+                    + ",\"pageSize\":3,\"cursor\":\"" + cursor + "\"}");
+            assertThat(res.get("code").asText()).isEqualTo("0");
+            JsonNode data = res.get("data");
+            data.get("goodsList").forEach(rows::add);
+            if (!data.get("hasMore").asBoolean()) {
+                return rows;
+            }
+            cursor = data.get("nextCursor").asText();
+        }
+        throw new AssertionError("cursor paging did not terminate");
+    }
+
+    private JsonNode post(String json) throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ResponseEntity<String> res = new RestTemplate().exchange("http://localhost:" + port + "/common/queryGoodsListByPage",
+                HttpMethod.POST, new HttpEntity<>(json, headers), String.class);
+        assertThat(res.getStatusCode().is2xxSuccessful()).isTrue();
+        return MAPPER.readTree(res.getBody());
+    }
+}
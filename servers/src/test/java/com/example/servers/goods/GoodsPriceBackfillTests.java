@@ -0,0 +1,49 @@
+package com.example.servers.goods;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class GoodsPriceBackfillTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private GoodsPriceBackfill backfill;
+
+    @Test
+    void legacyRowsWithOnlyPriceGetPriceFenFromPrice() {
+        // 旧库中只有字符串 price，price_fen 由 NOT NULL 建列填成 0
+        long priced = insertLegacy("¥12.50");
+        long free = insertLegacy("0.00");
+        long unparseable = insertLegacy("面议");
+
+        backfill.run();
+
+        assertThat(priceFen(priced)).isEqualTo(1250L);
+        assertThat(priceFen(free)).isZero();
+        assertThat(priceFen(unparseable)).isZero();
+
+        // 再次启动时不再改写
+        assertThat(backfill.backfillPriceFen()).isZero();
+    }
+
+    private long insertLegacy(String price) {
+        jdbcTemplate.update("INSERT INTO goods (category_code, type, description, price, price_fen, recommend, "
+                        + "sales_count, rating, created_at, status) VALUES (?, ?, ?, ?, 0, false, 0, 0, ?, 'ACTIVE')",
+                "backfill-test", "1", "legacy " + price, price, Timestamp.from(Instant.EPOCH));
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM goods", Long.class);
+    }
+
+    private Long priceFen(long id) {
+        return jdbcTemplate.queryForObject("SELECT price_fen FROM goods WHERE id = ?", Long.class, id);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.servers.goods;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GoodsSearchIndexTests {
+
+    @Test
+    void latinKeywordMatchesInsideWords() {
+        GoodsSearchIndex index = new GoodsSearchIndex(mock(GoodsRepository.class));
+        index.index(goods(1L, "Apple iPhone 15 Pro Max"));
+        index.index(goods(2L, "华为 Mate 60 Pro 5G手机"));
+        index.index(goods(3L, "Headphones 降噪耳机"));
+
+        assertThat(search(index, "phone")).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(search(index, "iphone")).containsExactly(1L);
+        assertThat(search(index, "ate")).containsExactly(2L);
+        assertThat(search(index, "pro")).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(search(index, "phones")).containsExactly(3L);
+        assertThat(search(index, "phonex")).isEmpty();
+    }
+
+    @Test
+    void changesIndexedDuringRebuildSurviveTheSwap() {
+        GoodsRepository repository = mock(GoodsRepository.class);
+        GoodsSearchIndex index = new GoodsSearchIndex(repository);
+        // 扫描读到的是旧描述，扫描期间管理端把 1 号改成了新描述，并新建了 2 号
+        when(repository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class))).thenAnswer(inv -> {
+            index.index(goods(1L, "Galaxy Fold"));
+            index.index(goods(2L, "Pixel Fold"));
+            return List.of(goods(1L, "Galaxy Flip"));
+        });
+        when(repository.findByIdGreaterThanOrderByIdAsc(eq(1L), any(Pageable.class))).thenReturn(List.of());
+
+        index.rebuild();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(search(index, "fold")).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(search(index, "flip")).isEmpty();
+    }
+
+    private static List<Long> search(GoodsSearchIndex index, String keyword) {
+        return index.search(keyword, GoodsSort.SMART, null, null, 0, 10).ids();
+    }
+
+    private static Goods goods(long id, String description) {
+        Goods g = new Goods();
+        g.setId(id);
+        g.setType("1");
+        g.setDescription(description);
+        g.setPrice("100");
+        return g;
+    }
+}
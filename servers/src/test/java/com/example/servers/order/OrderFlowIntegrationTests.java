@@ -0,0 +1,250 @@
+package com.example.servers.order;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.example.servers.admin.DashboardStream;
+import com.example.servers.admin.SalesAnalyticsStore;
+import com.example.servers.goods.GoodsRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class OrderFlowIntegrationTests {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private GoodsRepository goodsRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StatusEvents statusEvents;
+
+    @Autowired
+    private SalesAnalyticsStore salesAnalyticsStore;
+
+    @Autowired
+    private DashboardStream dashboardStream;
+
+    @Test
+    void statusCountsFollowCreatePayCancelDelete() throws Exception {
+        String userId = "counter-user";
+        long orderId = createOrder(userId);
+        assertCounts(userId, 1, 0, 0);
+
+        assertThat(post("/order/pay", "{\"userId\":\"" + userId + "\",\"orderId\":" + orderId + "}").get("code").asText())
+                .isEqualTo("0");
+        assertCounts(userId, 0, 1, 0);
+
+        assertThat(post("/order/cancel", "{\"userId\":\"" + userId + "\",\"orderId\":" + orderId + "}").get("code").asText())
+                .isEqualTo("0");
+        assertCounts(userId, 0, 0, 1);
+
+        assertThat(post("/order/delete", "{\"userId\":\"" + userId + "\",\"orderId\":" + orderId + "}").get("code").asText())
+                .isEqualTo("0");
+        assertCounts(userId, 0, 0, 0);
+    }
+
+    @Test
+    void concurrentPaysHaveExactlyOneWinnerAndOneEvent() throws Exception {
+        String userId = "double-pay-user";
+        long orderId = createOrder(userId);
+        String pay = "{\"userId\":\"" + userId + "\",\"orderId\":" + orderId + "}";
+
+        List<String> codes = race(List.of("/order/pay", "/order/pay", "/order/pay", "/order/pay",
+                "/order/pay", "/order/pay", "/order/pay", "/order/pay"), pay);
+
+        assertThat(codes).filteredOn("0"::equals).hasSize(1);
+        assertThat(codes).filteredOn("400"::equals).hasSize(7);
+        assertThat(statusEvents.of(orderId)).containsExactly("PENDING_PAYMENT>PENDING_SHIPMENT");
+        assertThat(orderRepository.findById(orderId).orElseThrow().getStatus()).isEqualTo("PENDING_SHIPMENT");
+        assertCounts(userId, 0, 1, 0);
+    }
+
+    @Test
+    void cancelRacingPayPublishesOneEventPerSuccessfulTransition() throws Exception {
+        String userId = "cancel-pay-user";
+        for (int round = 0; round < 5; round++) {
+            long orderId = createOrder(userId);
+            String body = "{\"userId\":\"" + userId + "\",\"orderId\":" + orderId + "}";
+
+            List<String> codes = race(List.of("/order/pay", "/order/cancel"), body);
+            boolean paid = "0".equals(codes.get(0));
+            boolean cancelled = "0".equals(codes.get(1));
+            String status = orderRepository.findById(orderId).orElseThrow().getStatus();
+
+            // 取消先到：支付失败；支付先到：取消要么基于已支付状态成功，要么因状态已变而失败
+            if (cancelled && paid) {
+                assertThat(statusEvents.of(orderId))
+                        .containsExactly("PENDING_PAYMENT>PENDING_SHIPMENT", "PENDING_SHIPMENT>CANCELLED");
+            } else if (cancelled) {
+                assertThat(statusEvents.of(orderId)).containsExactly("PENDING_PAYMENT>CANCELLED");
+            } else {
+                assertThat(paid).isTrue();
+                assertThat(statusEvents.of(orderId)).containsExactly("PENDING_PAYMENT>PENDING_SHIPMENT");
+            }
+            assertThat(status).isEqualTo(cancelled ? "CANCELLED" : "PENDING_SHIPMENT");
+        }
+    }
+
+    @Test
+    void salesTotalsFollowTransitionsAndAgreeWithReconcile() throws Exception {
+        String userId = "sales-user";
+        SalesAnalyticsStore.Totals before = salesAnalyticsStore.current();
+        long orderId = createOrder(userId);
+        BigDecimal amount = orderRepository.findById(orderId).orElseThrow().getTotalAmount();
+
+        SalesAnalyticsStore.Totals created = salesAnalyticsStore.current();
+        assertThat(created.revenue()).isEqualByComparingTo(before.revenue().add(amount));
+        assertThat(count(created, "PENDING_PAYMENT")).isEqualTo(count(before, "PENDING_PAYMENT") + 1);
+
+        post("/order/pay", "{\"userId\":\"" + userId + "\",\"orderId\":" + orderId + "}");
+        SalesAnalyticsStore.Totals paid = salesAnalyticsStore.current();
+        assertThat(paid.revenue()).isEqualByComparingTo(created.revenue());
+        assertThat(count(paid, "PENDING_PAYMENT")).isEqualTo(count(before, "PENDING_PAYMENT"));
+        assertThat(count(paid, "PENDING_SHIPMENT")).isEqualTo(count(before, "PENDING_SHIPMENT") + 1);
+
+        // 校准结果与增量维护的结果一致
+        salesAnalyticsStore.reconcile();
+        SalesAnalyticsStore.Totals reconciled = salesAnalyticsStore.current();
+        assertThat(reconciled.revenue()).isEqualByComparingTo(paid.revenue());
+        assertThat(reconciled.statusCounts()).isEqualTo(paid.statusCounts());
+
+        post("/order/cancel", "{\"userId\":\"" + userId + "\",\"orderId\":" + orderId + "}");
+        post("/order/delete", "{\"userId\":\"" + userId + "\",\"orderId\":" + orderId + "}");
+        SalesAnalyticsStore.Totals deleted = salesAnalyticsStore.current();
+        assertThat(deleted.revenue()).isEqualByComparingTo(before.revenue());
+        assertThat(deleted.statusCounts()).isEqualTo(before.statusCounts());
+    }
+
+    @Test
+    void dashboardStreamPushesEachTransitionAsItCommits() throws Exception {
+        String userId = "stream-user";
+        assertThat(dashboardStream.subscribe()).isNotNull();
+        long before = framesBuilt();
+
+        // 提交后同步生成帧，不等待校准
+        long orderId = createOrder(userId);
+        long created = framesBuilt();
+        assertThat(created).isGreaterThan(before);
+
+        post("/order/pay", "{\"userId\":\"" + userId + "\",\"orderId\":" + orderId + "}");
+        assertThat(framesBuilt()).isGreaterThan(created);
+    }
+
+    private long framesBuilt() {
+        return ((Number) dashboardStream.metrics().get("framesBuilt")).longValue();
+    }
+
+    private static long count(SalesAnalyticsStore.Totals totals, String status) {
+        return totals.statusCounts().getOrDefault(status, 0L);
+    }
+
+    // 所有请求同时放行，按 paths 的顺序返回各自的业务 code，请求异常记为 "error"
+    private List<String> race(List<String> paths, String json) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(paths.size());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> futures = new ArrayList<>();
+        for (String path : paths) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    return post(path, json).get("code").asText();
+                } catch (RestClientException | AssertionError ex) {
+                    return "error";
+                }
+            }));
+        }
+        start.countDown();
+        List<String> codes = new ArrayList<>();
+        for (Future<String> future : futures) {
+            codes.add(future.get());
+        }
+        pool.shutdown();
+        return codes;
+    }
+
+    long createOrder(String userId) throws Exception {
+        Long goodsId = goodsRepository.findAll().get(0).getId();
+        JsonNode added = post("/cart/add", "{\"userId\":\"" + userId + "\",\"goodsId\":\"" + goodsId + "\",\"num\":1}");
+        assertThat(added.get("code").asText()).isEqualTo("0");
+        JsonNode created = post("/order/create", "{\"userId\":\"" + userId + "\"}");
+        assertThat(created.get("code").asText()).isEqualTo("0");
+        return created.get("data").get("orderId").asLong();
+    }
+
+    JsonNode post(String path, String json) throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ResponseEntity<String> res = new RestTemplate().exchange("http://localhost:" + port + path,
+                HttpMethod.POST, new HttpEntity<>(json, headers), String.class);
+        assertThat(res.getStatusCode().is2xxSuccessful()).isTrue();
+        return MAPPER.readTree(res.getBody());
+    }
+
+    private void assertCounts(String userId, long pendingPayment, long pendingShipment, long cancelled) throws Exception {
+        JsonNode data = post("/order/statusCounts", "{\"userId\":\"" + userId + "\"}").get("data");
+        assertThat(data.get("pendingPayment").asLong()).isEqualTo(pendingPayment);
+        assertThat(data.get("pendingShipment").asLong()).isEqualTo(pendingShipment);
+        assertThat(data.get("cancelled").asLong()).isEqualTo(cancelled);
+    }
+
+    @TestConfiguration
+    static class StatusEventsConfig {
+
+        @Bean
+        StatusEvents statusEvents() {
+            return new StatusEvents();
+        }
+    }
+
+    // 记录提交后的状态流转事件，格式 from>to
+    static class StatusEvents {
+
+        private final Queue<OrderStatusChangedEvent> events = new ConcurrentLinkedQueue<>();
+
+        @TransactionalEventListener(fallbackExecution = true)
+        public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+            events.add(event);
+        }
+
+        List<String> of(long orderId) {
+            List<String> transitions = new ArrayList<>();
+            for (OrderStatusChangedEvent event : events) {
+                if (event.getOrderId() == orderId && event.getFromStatus() != null) {
+                    transitions.add(event.getFromStatus() + ">" + event.getToStatus());
+                }
+            }
+            return transitions;
+        }
+    }
+}
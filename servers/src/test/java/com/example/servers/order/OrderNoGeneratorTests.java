@@ -0,0 +1,110 @@
+package com.example.servers.order;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderNoGeneratorTests {
+
+    private static final long T = 1_780_000_000_123L;
+    private static final DateTimeFormatter MILLIS_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
+    private final AtomicLong clock = new AtomicLong(T);
+
+    @Test
+    void concurrentCallsAreUniqueAndIncreasingPerThread() throws Exception {
+        OrderNoGenerator generator = new OrderNoGenerator(7, clock::get);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<List<String>>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(pool.submit(() -> {
+                List<String> nos = new ArrayList<>();
+                for (int i = 0; i < 5_000; i++) {
+                    nos.add(generator.next());
+                }
+                return nos;
+            }));
+        }
+        Set<String> all = new HashSet<>();
+        for (Future<List<String>> future : futures) {
+            List<String> nos = future.get();
+            for (int i = 1; i < nos.size(); i++) {
+                assertThat(nos.get(i)).isGreaterThan(nos.get(i - 1));
+            }
+            all.addAll(nos);
+        }
+        pool.shutdown();
+        assertThat(all).hasSize(20_000);
+    }
+
+    @Test
+    void sequenceOverflowCarriesIntoNextMillisecond() {
+        OrderNoGenerator generator = new OrderNoGenerator(7, clock::get);
+        String last = null;
+        for (int i = 0; i < 10_000; i++) {
+            last = generator.next();
+        }
+        assertThat(last).isEqualTo(orderNo(T, "9999"));
+        assertThat(generator.clockBorrowed()).isZero();
+
+        assertThat(generator.next()).isEqualTo(orderNo(T + 1, "0000"));
+        assertThat(generator.clockBorrowed()).isEqualTo(1);
+    }
+
+    @Test
+    void clockRollbackKeepsNumbersIncreasing() {
+        OrderNoGenerator generator = new OrderNoGenerator(7, clock::get);
+        String before = generator.next();
+        clock.set(T - 5_000);
+        String after = generator.next();
+
+        assertThat(before).isEqualTo(orderNo(T, "0000"));
+        assertThat(after).isEqualTo(orderNo(T, "0001"));
+        assertThat(generator.clockBorrowed()).isEqualTo(1);
+
+        // 时钟追上之后回到真实时间
+        clock.set(T + 10);
+        assertThat(generator.next()).isEqualTo(orderNo(T + 10, "0000"));
+    }
+
+    @Test
+    void seedContinuesAfterLastOrderNoOfThisNode() {
+        OrderNoGenerator generator = new OrderNoGenerator(7, clock::get);
+        generator.seed("ORD" + stamp(T + 2_000) + "008" + "0500");
+        generator.seed("ORD" + stamp(T + 1_000) + "007" + "0042");
+        generator.seed("garbage");
+        generator.seed(null);
+
+        // 重启后时钟落后于上次生成的订单号
+        assertThat(generator.next()).isEqualTo(orderNo(T + 1_000, "0043"));
+    }
+
+    @Test
+    void missingOrOutOfRangeNodeIdFailsFast() {
+        assertThatThrownBy(() -> new OrderNoGenerator(null, clock::get))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new OrderNoGenerator(1_000, clock::get))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static String orderNo(long millis, String seq) {
+        return "ORD" + stamp(millis) + "007" + seq;
+    }
+
+    private static String stamp(long millis) {
+        return MILLIS_FORMAT.format(Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()));
+    }
+}
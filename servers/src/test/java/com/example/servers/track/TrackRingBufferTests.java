@@ -0,0 +1,96 @@
+package com.example.servers.track;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrackRingBufferTests {
+
+    @Test
+    void capacityRoundsUpAndOfferFailsWhenFull() {
+        TrackRingBuffer<Integer> buffer = new TrackRingBuffer<>(5);
+        assertThat(buffer.capacity()).isEqualTo(8);
+        for (int i = 0; i < 8; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+        assertThat(buffer.offer(8)).isFalse();
+        assertThat(buffer.size()).isEqualTo(8);
+
+        assertThat(buffer.poll()).isZero();
+        assertThat(buffer.offer(8)).isTrue();
+        List<Integer> drained = new ArrayList<>();
+        assertThat(buffer.drainTo(drained, 100)).isEqualTo(8);
+        assertThat(drained).containsExactly(1, 2, 3, 4, 5, 6, 7, 8);
+        assertThat(buffer.poll()).isNull();
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+
+    @Test
+    void offerAllIsAllOrNothing() {
+        TrackRingBuffer<Integer> buffer = new TrackRingBuffer<>(4);
+        assertThat(buffer.offerAll(List.of(1, 2, 3))).isTrue();
+        assertThat(buffer.offerAll(List.of(4, 5))).isFalse();
+        assertThat(buffer.size()).isEqualTo(3);
+        assertThat(buffer.offerAll(List.of(4))).isTrue();
+        assertThat(buffer.offerAll(List.of(1, 2, 3, 4, 5))).isFalse();
+
+        List<Integer> drained = new ArrayList<>();
+        buffer.drainTo(drained, 10);
+        assertThat(drained).containsExactly(1, 2, 3, 4);
+    }
+
+    @Test
+    void concurrentProducersLoseNothingAndKeepPerProducerOrder() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        TrackRingBuffer<long[]> buffer = new TrackRingBuffer<>(64);
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (long i = 0; i < perProducer; i++) {
+                    long[] element = {producer, i};
+                    // 队列满时自旋等待消费者
+                    while (!buffer.offer(element)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long[] next = new long[producers];
+        int received = 0;
+        start.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received < producers * perProducer) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            long[] element = buffer.poll();
+            if (element == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            int producer = (int) element[0];
+            assertThat(element[1]).isEqualTo(next[producer]);
+            next[producer]++;
+            received++;
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        assertThat(buffer.poll()).isNull();
+        assertThat(next).containsOnly(perProducer);
+    }
+}
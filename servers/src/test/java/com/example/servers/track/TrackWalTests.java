@@ -0,0 +1,135 @@
+package com.example.servers.track;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrackWalTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void restartReplaysFromAckedPosition() throws Exception {
+        TrackWal wal = open(4096);
+        wal.append(records(1, 3));
+        TrackWal.Batch first = wal.poll(2);
+        assertThat(goodsIds(first)).containsExactly(1L, 2L);
+        wal.ack(first);
+        wal.close();
+
+        TrackWal reopened = open(4096);
+        TrackWal.Batch rest = reopened.poll(10);
+        assertThat(goodsIds(rest)).containsExactly(3L);
+        reopened.ack(rest);
+        reopened.append(records(4, 1));
+        assertThat(goodsIds(reopened.poll(10))).containsExactly(4L);
+        reopened.close();
+    }
+
+    @Test
+    void rolloverReadsAcrossSegmentsAndAckDeletesSealedOnes() throws Exception {
+        // 每条记录 41 字节，100 字节的段只放得下两条
+        TrackWal wal = open(100);
+        wal.append(records(1, 5));
+        assertThat(segmentFiles()).hasSize(3);
+        TrackWal.Batch batch = wal.poll(10);
+        assertThat(goodsIds(batch)).containsExactly(1L, 2L, 3L, 4L, 5L);
+        wal.ack(batch);
+        assertThat(segmentFiles()).hasSize(1);
+        assertThat(wal.poll(10).records()).isEmpty();
+        wal.close();
+    }
+
+    @Test
+    void tornTailIsSkippedAndReplayContinues() throws Exception {
+        TrackWal wal = open(4096);
+        wal.append(records(1, 2));
+        wal.close();
+        Path segment = segmentFiles().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // 在最后一条完整记录之后写入只有头部、校验不通过的半条记录
+            ByteBuffer header = ByteBuffer.allocate(4);
+            int offset = 0;
+            while (true) {
+                header.clear();
+                channel.read(header, offset);
+                int length = header.getInt(0);
+                if (length == 0) {
+                    break;
+                }
+                offset += 8 + length;
+            }
+            channel.write(ByteBuffer.allocate(12).putInt(20).putInt(12345).putInt(7).flip(), offset);
+        }
+
+        TrackWal reopened = open(4096);
+        TrackWal.Batch batch = reopened.poll(10);
+        assertThat(goodsIds(batch)).containsExactly(1L, 2L);
+        assertThat(reopened.metrics().get("walCorruptSegments")).isEqualTo(1L);
+        reopened.ack(batch);
+        reopened.append(records(3, 1));
+        assertThat(goodsIds(reopened.poll(10))).containsExactly(3L);
+        reopened.close();
+    }
+
+    @Test
+    void secondInstanceOnSameDirectoryFallsBack() throws Exception {
+        TrackWal owner = open(4096);
+        TrackWal other = open(4096);
+        assertThat(owner.isEnabled()).isTrue();
+        assertThat(other.isEnabled()).isFalse();
+        assertThat(other.metrics().get("walLockedByOther")).isEqualTo(true);
+        owner.close();
+
+        TrackWal next = open(4096);
+        assertThat(next.isEnabled()).isTrue();
+        next.close();
+    }
+
+    @Test
+    void enabledWithoutDirectoryFallsBackToDirectWrites() throws Exception {
+        TrackWal wal = new TrackWal(true, "", 4096, 8);
+        wal.open();
+        assertThat(wal.isEnabled()).isFalse();
+        wal.close();
+    }
+
+    private TrackWal open(int segmentBytes) throws Exception {
+        TrackWal wal = new TrackWal(true, dir.toString(), segmentBytes, 8);
+        wal.open();
+        return wal;
+    }
+
+    private List<Path> segmentFiles() throws Exception {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "track-*.wal")) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        return files;
+    }
+
+    private static List<TrackRecord> records(long firstGoodsId, int count) {
+        List<TrackRecord> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            list.add(new TrackRecord(firstGoodsId + i, "click", Instant.ofEpochMilli(1_700_000_000_000L + i)));
+        }
+        return list;
+    }
+
+    private static List<Long> goodsIds(TrackWal.Batch batch) {
+        return batch.records().stream().map(TrackRecord::goodsId).toList();
+    }
+}